@@ -0,0 +1,52 @@
+package gg.lode.bookshelfcmd.benchmark;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Realistic flag inputs and flag declarations shared by the benchmarks.
+ */
+final class FlagInputs {
+
+    static final Set<Character> FLAGS = Set.of('s', 'e', 'f', 'a', 'b', 'c', 'g', 'h', 'i', 'j', 'k', 'l');
+    static final Set<Character> VALUE_FLAGS = Set.of('d', 'r', 'n');
+    static final Set<String> WORD_FLAGS = wordFlags();
+    static final Set<String> WORD_VALUE_FLAGS = Set.of("duration", "reason", "server");
+
+    private FlagInputs() {
+    }
+
+    /**
+     * @param shape One of "short", "long", "grouped" or "words"
+     * @return The input for that shape
+     */
+    static String input(String shape) {
+        return switch (shape) {
+            case "short" -> "Notch -s -d 7d";
+            case "long" -> longInput();
+            case "grouped" -> "Notch -sefabc -ghijkl -d 20 -sefr spam -abn 3 -1 appeal at discord";
+            case "words" -> "Notch --silent --duration 7d --reason spam --notify --log --server lobby --broadcast --ip --alts --force";
+            default -> throw new IllegalArgumentException("Unknown input shape: " + shape);
+        };
+    }
+
+    // 50 whitespace separated tokens
+    private static String longInput() {
+        StringBuilder builder = new StringBuilder("Notch");
+        String[] tokens = {"-s", "hello", "-d", "20", "--silent", "world", "-ef", "-12", "--duration", "7d", "again"};
+        for (int i = 0; i < 49; i++) {
+            builder.append(' ').append(tokens[i % tokens.length]);
+        }
+        return builder.toString();
+    }
+
+    // About 40 long flags, like our admin commands
+    private static Set<String> wordFlags() {
+        Set<String> words = new HashSet<>(Set.of("silent", "notify", "log", "broadcast", "ip", "alts", "force", "skip",
+                "confirm", "dry-run", "verbose", "quiet", "global", "local", "persist", "temporary", "unsafe", "async"));
+        for (int i = 0; words.size() < 40; i++) {
+            words.add("option-" + i);
+        }
+        return words;
+    }
+}
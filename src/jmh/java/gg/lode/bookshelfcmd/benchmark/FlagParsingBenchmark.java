@@ -0,0 +1,68 @@
+package gg.lode.bookshelfcmd.benchmark;
+
+import gg.lode.bookshelfcmd.argument.FlagArgument;
+import gg.lode.bookshelfcmd.argument.FlagSpec;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+import static gg.lode.bookshelfcmd.benchmark.FlagInputs.*;
+
+/**
+ * Parsing, sanitizing and flag lookups through the compiled {@link FlagSpec} and the static helpers.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FlagParsingBenchmark {
+
+    @Param({"short", "long", "grouped", "words"})
+    public String shape;
+
+    private String input;
+    private FlagSpec spec;
+
+    @Setup
+    public void setup() {
+        input = FlagInputs.input(shape);
+        spec = FlagSpec.of(FLAGS, VALUE_FLAGS, WORD_FLAGS, WORD_VALUE_FLAGS);
+    }
+
+    @Benchmark
+    public FlagArgument.ParsedFlags parseSpec() {
+        return spec.parse(input);
+    }
+
+    @Benchmark
+    public FlagArgument.ParsedFlags parseStatic() {
+        return FlagArgument.parseFlags(input, VALUE_FLAGS, WORD_VALUE_FLAGS);
+    }
+
+    @Benchmark
+    public String parseAndReadValue() {
+        return spec.parse(input).getFlagValue('d', "duration");
+    }
+
+    @Benchmark
+    public String sanitizeSpec() {
+        return spec.sanitize(input);
+    }
+
+    @Benchmark
+    public String sanitizeStatic() {
+        return FlagArgument.sanitizeInput(input, VALUE_FLAGS, WORD_FLAGS, WORD_VALUE_FLAGS);
+    }
+
+    @Benchmark
+    public boolean hasFlags() {
+        return FlagArgument.hasFlags(input, "sef");
+    }
+
+    @Benchmark
+    public boolean hasWordFlag() {
+        return FlagArgument.hasWordFlag(input, "force");
+    }
+}
@@ -0,0 +1,127 @@
+package gg.lode.bookshelfcmd.benchmark;
+
+import com.mojang.brigadier.CommandDispatcher;
+import com.mojang.brigadier.ParseResults;
+import com.mojang.brigadier.arguments.StringArgumentType;
+import com.mojang.brigadier.builder.LiteralArgumentBuilder;
+import com.mojang.brigadier.builder.RequiredArgumentBuilder;
+import com.mojang.brigadier.exceptions.CommandSyntaxException;
+import com.mojang.brigadier.suggestion.Suggestions;
+import com.mojang.brigadier.tree.CommandNode;
+import dev.jorel.commandapi.SuggestionInfo;
+import dev.jorel.commandapi.arguments.ArgumentSuggestions;
+import dev.jorel.commandapi.executors.CommandArguments;
+import gg.lode.bookshelfcmd.argument.FlagArgument;
+import gg.lode.bookshelfcmd.merge.MergeConflict;
+import gg.lode.bookshelfcmd.merge.TreeMerger;
+import org.bukkit.command.Command;
+import org.bukkit.command.CommandMap;
+import org.bukkit.command.CommandSender;
+
+import java.util.*;
+import java.util.function.BiConsumer;
+
+/**
+ * A headless stand-in for the server's command system, driving Bookshelf arguments without a server.
+ * <p>
+ * Commands are registered into a local Brigadier dispatcher the way CommandAPI would register them:
+ * a literal per label, and a greedy node per {@link FlagArgument} that parses through
+ * {@link FlagArgument#parseArgument} and suggests through the argument's suggestion provider.
+ * A {@link CommandMap} mirroring the registered labels is available for arguments resolving
+ * nested commands, such as {@link gg.lode.bookshelfcmd.argument.CommandFlagArgument}.
+ */
+final class Harness {
+
+    private final CommandDispatcher<CommandSender> dispatcher = new CommandDispatcher<>();
+    private final Map<String, Command> commands = new TreeMap<>();
+    private CommandMap commandMap; // rebuilt after registrations
+
+    /**
+     * Register a command taking a single flag argument.
+     *
+     * @param label    The command label
+     * @param argument The flag argument
+     * @param executor Receives the sender and the flags parsed by the argument
+     */
+    void register(String label, FlagArgument argument, BiConsumer<CommandSender, FlagArgument.ParsedFlags> executor) {
+        String name = argument.getNodeName();
+        ArgumentSuggestions<CommandSender> suggestions = argument.getOverriddenSuggestions().orElse(null);
+
+        RequiredArgumentBuilder<CommandSender, String> node = RequiredArgumentBuilder.<CommandSender, String>argument(name, StringArgumentType.greedyString())
+                .executes(context -> {
+                    executor.accept(context.getSource(), argument.parseArgument(context, name, null));
+                    return 1;
+                });
+        if (suggestions != null) {
+            node.suggests((context, builder) -> suggestions.suggest(info(context.getSource(), builder.getInput(), builder.getRemaining()), builder));
+        }
+        register(LiteralArgumentBuilder.<CommandSender>literal(label).then(node));
+    }
+
+    /**
+     * Register a plain Brigadier command, e.g. a vanilla-like tree to merge into.
+     */
+    void register(LiteralArgumentBuilder<CommandSender> command) {
+        dispatcher.register(command);
+        String label = command.getLiteral();
+        commands.put(label, new Command(label) {
+            @Override
+            public boolean execute(CommandSender sender, String commandLabel, String[] args) {
+                return Harness.this.execute(sender, join(commandLabel, args)) > 0;
+            }
+
+            @Override
+            public List<String> tabComplete(CommandSender sender, String alias, String[] args) {
+                Suggestions suggestions = suggest(sender, join(alias, args));
+                List<String> texts = new ArrayList<>(suggestions.getList().size());
+                suggestions.getList().forEach(suggestion -> texts.add(suggestion.getText()));
+                return texts;
+            }
+        });
+        commandMap = null;
+    }
+
+    /**
+     * Merge a branch into a registered command with {@link TreeMerger}.
+     */
+    List<MergeConflict> merge(String label, LiteralArgumentBuilder<CommandSender> branch, TreeMerger.Prefer prefer) {
+        CommandNode<CommandSender> target = dispatcher.getRoot().getChild(label);
+        if (target == null) throw new IllegalStateException("No command named " + label);
+        return TreeMerger.merge(target, branch.build(), prefer);
+    }
+
+    ParseResults<CommandSender> parse(CommandSender sender, String input) {
+        return dispatcher.parse(input, sender);
+    }
+
+    /**
+     * @return The result of the command, or 0 if the input did not parse or the command failed
+     */
+    int execute(CommandSender sender, String input) {
+        try {
+            return dispatcher.execute(input, sender);
+        } catch (CommandSyntaxException e) {
+            return 0;
+        }
+    }
+
+    Suggestions suggest(CommandSender sender, String input) {
+        return dispatcher.getCompletionSuggestions(dispatcher.parse(input, sender)).join();
+    }
+
+    /**
+     * @return A command map holding the registered labels, dispatching into this harness
+     */
+    CommandMap commandMap() {
+        if (commandMap == null) commandMap = Stubs.commandMap(commands.values().toArray(Command[]::new));
+        return commandMap;
+    }
+
+    private static SuggestionInfo<CommandSender> info(CommandSender sender, String input, String arg) {
+        return new SuggestionInfo<>(sender, new CommandArguments(new Object[0], new LinkedHashMap<>(), new String[0], new LinkedHashMap<>(), input), input, arg);
+    }
+
+    private static String join(String label, String[] args) {
+        return args.length == 0 ? label : label + " " + String.join(" ", args);
+    }
+}
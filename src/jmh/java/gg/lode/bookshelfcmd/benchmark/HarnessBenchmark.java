@@ -0,0 +1,42 @@
+package gg.lode.bookshelfcmd.benchmark;
+
+import org.bukkit.command.CommandSender;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parse, execute and suggest through the {@link Harness} dispatcher, the way the server drives
+ * registered commands. Run with {@code -prof gc} for allocations per call.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HarnessBenchmark {
+
+    @Param({"parseShort", "parseLong", "executeShort", "executeWords", "executeMerged",
+            "suggestFlags", "suggestWord", "suggestValue", "suggestCommandName", "suggestNested"})
+    public String scenario;
+
+    private Harness harness;
+    private CommandSender sender;
+    private HarnessScenarios.Scenario current;
+
+    @Setup
+    public void setup() {
+        harness = HarnessScenarios.harness();
+        sender = Stubs.sender("Notch");
+        current = HarnessScenarios.SCENARIOS.get(scenario);
+        if (current == null) throw new IllegalArgumentException("Unknown scenario: " + scenario);
+        String failure = HarnessScenarios.verify(harness, sender, current);
+        if (failure != null) throw new IllegalStateException(scenario + " " + failure);
+    }
+
+    @Benchmark
+    public Object run() {
+        return HarnessScenarios.run(harness, sender, current);
+    }
+}
@@ -0,0 +1,145 @@
+package gg.lode.bookshelfcmd.benchmark;
+
+import org.bukkit.command.CommandSender;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * A quick regression check over the {@link HarnessScenarios}, without the JMH run time.
+ * <p>
+ * Each scenario is first checked against its expected outcome, failing the run if a command no
+ * longer parses, executes or suggests what it should. It is then warmed up and timed call by
+ * call for the p50 and p99 latency, with the bytes allocated per call read from the thread's
+ * allocation counter.
+ * <p>
+ * Options:
+ * <ul>
+ *     <li>{@code --write <file>} saves the results as a baseline</li>
+ *     <li>{@code --compare <file>} compares against a baseline, exiting with 1 when a scenario's
+ *     p50 is more than 25% slower or it allocates more than 10% more</li>
+ * </ul>
+ * Run with: {@code mvn -P benchmark test-compile exec:exec@harness -Dharness.args="--compare baseline.properties"}
+ */
+public final class HarnessRunner {
+
+    private static final int WARMUP_CALLS = 50_000;
+    private static final int MEASURED_CALLS = 20_000;
+    private static final double MAX_LATENCY_REGRESSION = 1.25;
+    private static final double MAX_ALLOCATION_REGRESSION = 1.10;
+    // Allocation counts below this are noise from the counter itself
+    private static final long MIN_ALLOCATION_BYTES = 64;
+
+    private HarnessRunner() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        Path write = null, compare = null;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--write" -> write = Path.of(args[++i]);
+                case "--compare" -> compare = Path.of(args[++i]);
+                default -> throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+
+        Harness harness = HarnessScenarios.harness();
+        CommandSender sender = Stubs.sender("Notch");
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+        // A broken scenario would otherwise show up as a speed-up
+        List<String> failures = new ArrayList<>();
+        for (HarnessScenarios.Scenario scenario : HarnessScenarios.SCENARIOS.values()) {
+            String failure = HarnessScenarios.verify(harness, sender, scenario);
+            if (failure != null) failures.add(scenario.name() + " " + failure);
+        }
+        if (!failures.isEmpty()) {
+            failures.forEach(System.err::println);
+            System.exit(1);
+        }
+
+        Map<String, Result> results = new LinkedHashMap<>();
+        for (HarnessScenarios.Scenario scenario : HarnessScenarios.SCENARIOS.values()) {
+            results.put(scenario.name(), measure(harness, sender, scenario, threads));
+        }
+
+        Properties baseline = null;
+        if (compare != null) {
+            baseline = new Properties();
+            try (var reader = Files.newBufferedReader(compare)) {
+                baseline.load(reader);
+            }
+        }
+
+        boolean regressed = false;
+        System.out.printf("%-20s %10s %10s %12s%s%n", "scenario", "p50 ns", "p99 ns", "bytes/op", baseline == null ? "" : "  vs baseline");
+        for (Map.Entry<String, Result> entry : results.entrySet()) {
+            Result result = entry.getValue();
+            String verdict = "";
+            if (baseline != null) {
+                Result previous = Result.parse(baseline.getProperty(entry.getKey()));
+                if (previous == null) {
+                    verdict = "  new";
+                } else {
+                    boolean slower = result.p50() > previous.p50() * MAX_LATENCY_REGRESSION;
+                    boolean heavier = result.bytes() > MIN_ALLOCATION_BYTES && result.bytes() > previous.bytes() * MAX_ALLOCATION_REGRESSION;
+                    verdict = String.format("  %+.0f%% time, %+.0f%% bytes%s", change(previous.p50(), result.p50()),
+                            change(previous.bytes(), result.bytes()), slower || heavier ? "  REGRESSED" : "");
+                    regressed |= slower || heavier;
+                }
+            }
+            System.out.printf("%-20s %10d %10d %12d%s%n", entry.getKey(), result.p50(), result.p99(), result.bytes(), verdict);
+        }
+
+        if (write != null) {
+            Properties properties = new Properties();
+            results.forEach((name, result) -> properties.setProperty(name, result.toString()));
+            try (var writer = Files.newBufferedWriter(write)) {
+                properties.store(writer, "HarnessRunner baseline: p50 ns, p99 ns, bytes/op");
+            }
+        }
+        if (regressed) System.exit(1);
+    }
+
+    private static Result measure(Harness harness, CommandSender sender, HarnessScenarios.Scenario scenario,
+                                  com.sun.management.ThreadMXBean threads) {
+        Object sink = null;
+        for (int i = 0; i < WARMUP_CALLS; i++) {
+            sink = HarnessScenarios.run(harness, sender, scenario);
+        }
+
+        long[] latencies = new long[MEASURED_CALLS];
+        long allocatedBefore = threads.getCurrentThreadAllocatedBytes();
+        for (int i = 0; i < MEASURED_CALLS; i++) {
+            long start = System.nanoTime();
+            sink = HarnessScenarios.run(harness, sender, scenario);
+            latencies[i] = System.nanoTime() - start;
+        }
+        long allocated = threads.getCurrentThreadAllocatedBytes() - allocatedBefore;
+        if (sink == null) throw new IllegalStateException(scenario.name() + " returned nothing");
+
+        Arrays.sort(latencies);
+        return new Result(latencies[MEASURED_CALLS / 2], latencies[MEASURED_CALLS * 99 / 100], allocated / MEASURED_CALLS);
+    }
+
+    private static double change(long before, long after) {
+        return before == 0 ? 0 : (after - before) * 100.0 / before;
+    }
+
+    private record Result(long p50, long p99, long bytes) {
+
+        static Result parse(String value) {
+            if (value == null) return null;
+            String[] parts = value.split(",");
+            return new Result(Long.parseLong(parts[0]), Long.parseLong(parts[1]), Long.parseLong(parts[2]));
+        }
+
+        @Override
+        public String toString() {
+            return p50 + "," + p99 + "," + bytes;
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package gg.lode.bookshelfcmd.benchmark;
+
+import com.mojang.brigadier.ParseResults;
+import com.mojang.brigadier.arguments.IntegerArgumentType;
+import com.mojang.brigadier.arguments.StringArgumentType;
+import com.mojang.brigadier.builder.LiteralArgumentBuilder;
+import com.mojang.brigadier.builder.RequiredArgumentBuilder;
+import com.mojang.brigadier.suggestion.Suggestion;
+import com.mojang.brigadier.suggestion.Suggestions;
+import gg.lode.bookshelfcmd.argument.FlagArgument;
+import gg.lode.bookshelfcmd.argument.FlagConverter;
+import gg.lode.bookshelfcmd.argument.ValueSuggestions;
+import gg.lode.bookshelfcmd.merge.TreeMerger;
+import org.bukkit.command.CommandSender;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static gg.lode.bookshelfcmd.benchmark.FlagInputs.*;
+
+/**
+ * The commands and inputs driven by {@link HarnessBenchmark} and {@link HarnessRunner}.
+ * <p>
+ * {@code ban} takes a {@link FlagArgument} with converters and value suggestions, {@code give}
+ * is a vanilla-like tree with a branch merged in by {@link TreeMerger}, and {@code sudo} takes a
+ * {@link gg.lode.bookshelfcmd.argument.CommandFlagArgument} completing the other two.
+ */
+final class HarnessScenarios {
+
+    enum Kind {
+        PARSE,
+        EXECUTE,
+        SUGGEST
+    }
+
+    /**
+     * @param expected What a working build produces: nothing for {@link Kind#PARSE}, which must
+     *                 consume the whole input, the command result for {@link Kind#EXECUTE}, and a
+     *                 suggestion text that must be offered for {@link Kind#SUGGEST}
+     */
+    record Scenario(String name, Kind kind, String input, String expected) {
+    }
+
+    static final Map<String, Scenario> SCENARIOS = scenarios();
+
+    private HarnessScenarios() {
+    }
+
+    private static Map<String, Scenario> scenarios() {
+        Map<String, Scenario> scenarios = new LinkedHashMap<>();
+        add(scenarios, "parseShort", Kind.PARSE, "ban " + FlagInputs.input("short"), null);
+        add(scenarios, "parseLong", Kind.PARSE, "ban " + FlagInputs.input("long"), null);
+        add(scenarios, "executeShort", Kind.EXECUTE, "ban " + FlagInputs.input("short"), "1");
+        add(scenarios, "executeWords", Kind.EXECUTE, "ban " + FlagInputs.input("words"), "1");
+        add(scenarios, "executeMerged", Kind.EXECUTE, "give Notch custom 5", "1");
+        add(scenarios, "suggestFlags", Kind.SUGGEST, "ban Notch -s ", "Notch -s -e");
+        add(scenarios, "suggestWord", Kind.SUGGEST, "ban --du", "--duration");
+        add(scenarios, "suggestValue", Kind.SUGGEST, "ban Notch -d ", "7d");
+        add(scenarios, "suggestCommandName", Kind.SUGGEST, "sudo gi", "give");
+        add(scenarios, "suggestNested", Kind.SUGGEST, "sudo give Notch -s --", "--silent");
+        return scenarios;
+    }
+
+    private static void add(Map<String, Scenario> scenarios, String name, Kind kind, String input, String expected) {
+        scenarios.put(name, new Scenario(name, kind, input, expected));
+    }
+
+    /**
+     * @return A harness with the scenario commands registered
+     */
+    static Harness harness() {
+        Harness harness = new Harness();
+
+        FlagArgument flags = new FlagArgument("flags", FLAGS, VALUE_FLAGS, WORD_FLAGS, WORD_VALUE_FLAGS)
+                .withConverter('d', FlagConverter.duration())
+                .withConverter("duration", FlagConverter.duration())
+                .withValueSuggestions('d', ValueSuggestions.of("30m", "1h", "1d", "7d", "30d"))
+                .withValueSuggestions("duration", ValueSuggestions.of("30m", "1h", "1d", "7d", "30d"));
+        harness.register("ban", flags, (sender, parsed) -> {
+            // Read what an executor would, so lazily materialized values are paid for
+            parsed.getFlagValue('d', Duration.class);
+            parsed.getRemainder();
+        });
+
+        harness.register(LiteralArgumentBuilder.<CommandSender>literal("give")
+                .then(RequiredArgumentBuilder.<CommandSender, String>argument("targets", StringArgumentType.word())
+                        .then(RequiredArgumentBuilder.<CommandSender, String>argument("item", StringArgumentType.word())
+                                .executes(context -> 1))));
+        harness.merge("give", LiteralArgumentBuilder.<CommandSender>literal("give")
+                .then(RequiredArgumentBuilder.<CommandSender, String>argument("targets", StringArgumentType.word())
+                        .then(LiteralArgumentBuilder.<CommandSender>literal("custom")
+                                .then(RequiredArgumentBuilder.<CommandSender, Integer>argument("amount", IntegerArgumentType.integer(1, 64))
+                                        .executes(context -> 1)))), TreeMerger.Prefer.EXISTING);
+
+        // Created last, so its command map holds every other command
+        harness.register("sudo", new Stubs.StubCommandFlagArgument(harness.commandMap(), FLAGS, VALUE_FLAGS, WORD_FLAGS), (sender, parsed) -> {
+        });
+        return harness;
+    }
+
+    /**
+     * Run a scenario once.
+     *
+     * @return The scenario's result, to keep it from being optimized away
+     */
+    static Object run(Harness harness, CommandSender sender, Scenario scenario) {
+        return switch (scenario.kind()) {
+            case PARSE -> harness.parse(sender, scenario.input());
+            case EXECUTE -> harness.execute(sender, scenario.input());
+            case SUGGEST -> harness.suggest(sender, scenario.input());
+        };
+    }
+
+    /**
+     * Run a scenario once and compare the outcome with what it expects.
+     *
+     * @return Why the outcome is wrong, or null if it is as expected
+     */
+    static String verify(Harness harness, CommandSender sender, Scenario scenario) {
+        Object result = run(harness, sender, scenario);
+        return switch (scenario.kind()) {
+            case PARSE -> {
+                ParseResults<?> parse = (ParseResults<?>) result;
+                if (!parse.getExceptions().isEmpty()) yield "failed to parse: " + parse.getExceptions().values();
+                yield parse.getReader().canRead() ? "left '" + parse.getReader().getRemaining() + "' unparsed" : null;
+            }
+            case EXECUTE -> scenario.expected().equals(String.valueOf(result))
+                    ? null : "returned " + result + ", expected " + scenario.expected();
+            case SUGGEST -> {
+                Suggestions suggestions = (Suggestions) result;
+                for (Suggestion suggestion : suggestions.getList()) {
+                    if (suggestion.getText().equals(scenario.expected())) yield null;
+                }
+                yield "did not suggest '" + scenario.expected() + "', got " + suggestions.getList().stream().map(Suggestion::getText).toList();
+            }
+        };
+    }
+}
@@ -0,0 +1,109 @@
+package gg.lode.bookshelfcmd.benchmark;
+
+import com.mojang.brigadier.suggestion.SuggestionsBuilder;
+import dev.jorel.commandapi.SuggestionInfo;
+import dev.jorel.commandapi.executors.CommandArguments;
+import gg.lode.bookshelfcmd.argument.CommandFlagArgument;
+import org.bukkit.command.Command;
+import org.bukkit.command.CommandMap;
+import org.bukkit.command.CommandSender;
+
+import java.lang.reflect.Proxy;
+import java.util.*;
+
+/**
+ * Stand-ins for the server objects the suggestion providers touch, so they can run without a server.
+ */
+final class Stubs {
+
+    private Stubs() {
+    }
+
+    /**
+     * @return A console-like sender with no permissions, comparable by identity
+     */
+    static CommandSender sender(String name) {
+        return (CommandSender) Proxy.newProxyInstance(Stubs.class.getClassLoader(), new Class<?>[]{CommandSender.class}, (proxy, method, args) -> switch (method.getName()) {
+            case "getName", "toString" -> name;
+            case "hashCode" -> System.identityHashCode(proxy);
+            case "equals" -> proxy == args[0];
+            case "isOp", "hasPermission", "isPermissionSet" -> false;
+            case "getEffectivePermissions" -> Set.of();
+            default -> null;
+        });
+    }
+
+    /**
+     * @return A command map holding only the given commands, completing labels by prefix
+     */
+    static CommandMap commandMap(Command... commands) {
+        Map<String, Command> known = new TreeMap<>();
+        for (Command command : commands) {
+            known.put(command.getName(), command);
+        }
+        return (CommandMap) Proxy.newProxyInstance(Stubs.class.getClassLoader(), new Class<?>[]{CommandMap.class}, (proxy, method, args) -> switch (method.getName()) {
+            case "getCommand" -> known.get(((String) args[0]).toLowerCase(Locale.ROOT));
+            case "getKnownCommands" -> known;
+            case "tabComplete" -> {
+                String prefix = (String) args[1];
+                List<String> matches = new ArrayList<>();
+                for (String label : known.keySet()) {
+                    if (label.startsWith(prefix)) matches.add(label);
+                }
+                yield matches;
+            }
+            case "hashCode" -> System.identityHashCode(proxy);
+            case "equals" -> proxy == args[0];
+            case "toString" -> "StubCommandMap";
+            default -> null;
+        });
+    }
+
+    /**
+     * @return A command completing its arguments from a fixed list
+     */
+    static Command command(String name, String... completions) {
+        List<String> list = List.of(completions);
+        return new Command(name) {
+            @Override
+            public boolean execute(CommandSender sender, String commandLabel, String[] args) {
+                return true;
+            }
+
+            @Override
+            public List<String> tabComplete(CommandSender sender, String alias, String[] args) {
+                return list;
+            }
+        };
+    }
+
+    /**
+     * @param prefix The command text before the argument, e.g. "ban "
+     * @param arg    The argument text typed so far
+     */
+    static SuggestionInfo<CommandSender> info(CommandSender sender, String prefix, String arg) {
+        String input = prefix + arg;
+        return new SuggestionInfo<>(sender, new CommandArguments(new Object[0], new LinkedHashMap<>(), new String[0], new LinkedHashMap<>(), input), input, arg);
+    }
+
+    static SuggestionsBuilder builder(String prefix, String arg) {
+        return new SuggestionsBuilder(prefix + arg, prefix.length());
+    }
+
+    /**
+     * A CommandFlagArgument resolving nested commands against a stub command map.
+     */
+    static final class StubCommandFlagArgument extends CommandFlagArgument {
+        private final CommandMap commandMap;
+
+        StubCommandFlagArgument(CommandMap commandMap, Set<Character> flags, Set<Character> valueFlags, Set<String> wordFlags) {
+            super("command", flags, valueFlags, wordFlags);
+            this.commandMap = commandMap;
+        }
+
+        @Override
+        protected CommandMap getCommandMap() {
+            return commandMap;
+        }
+    }
+}
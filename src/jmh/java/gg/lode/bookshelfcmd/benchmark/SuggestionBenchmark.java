@@ -0,0 +1,80 @@
+package gg.lode.bookshelfcmd.benchmark;
+
+import com.mojang.brigadier.exceptions.CommandSyntaxException;
+import com.mojang.brigadier.suggestion.Suggestions;
+import dev.jorel.commandapi.arguments.ArgumentSuggestions;
+import gg.lode.bookshelfcmd.argument.FlagArgument;
+import org.bukkit.command.CommandSender;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+import static gg.lode.bookshelfcmd.benchmark.FlagInputs.*;
+
+/**
+ * The suggestion providers of {@link FlagArgument} and {@link gg.lode.bookshelfcmd.argument.CommandFlagArgument},
+ * driven with stub senders, suggestion info and builders.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SuggestionBenchmark {
+
+    private static final String PREFIX = "ban ";
+
+    @Param({"short", "long", "grouped", "words"})
+    public String shape;
+
+    private CommandSender sender;
+    private String input;
+    private ArgumentSuggestions<CommandSender> flagSuggestions;
+    private ArgumentSuggestions<CommandSender> commandSuggestions;
+    private int typed;
+
+    @Setup
+    public void setup() {
+        sender = Stubs.sender("Notch");
+        input = FlagInputs.input(shape);
+        flagSuggestions = new FlagArgument("flags", FLAGS, VALUE_FLAGS, WORD_FLAGS)
+                .getOverriddenSuggestions().orElseThrow();
+        commandSuggestions = new Stubs.StubCommandFlagArgument(Stubs.commandMap(
+                Stubs.command("give", "Notch", "jeb_", "Dinnerbone"),
+                Stubs.command("gamemode", "survival", "creative", "adventure", "spectator"),
+                Stubs.command("ban", "Notch", "jeb_")), FLAGS, VALUE_FLAGS, WORD_FLAGS)
+                .getOverriddenSuggestions().orElseThrow();
+    }
+
+    /**
+     * One more character typed per invocation, the way clients send completion requests.
+     */
+    @Benchmark
+    public Suggestions flagArgumentTyping() throws CommandSyntaxException {
+        typed = typed >= input.length() ? 1 : typed + 1;
+        String arg = input.substring(0, typed);
+        return flagSuggestions.suggest(Stubs.info(sender, PREFIX, arg), Stubs.builder(PREFIX, arg)).join();
+    }
+
+    /**
+     * The whole input completed at once, without any per-sender state to reuse.
+     */
+    @Benchmark
+    public Suggestions flagArgumentCold() throws CommandSyntaxException {
+        FlagArgument.clearCompletionState(sender);
+        String arg = input + " -";
+        return flagSuggestions.suggest(Stubs.info(sender, PREFIX, arg), Stubs.builder(PREFIX, arg)).join();
+    }
+
+    @Benchmark
+    public Suggestions commandName() throws CommandSyntaxException {
+        return commandSuggestions.suggest(Stubs.info(sender, "sudo ", "ga"), Stubs.builder("sudo ", "ga")).join();
+    }
+
+    @Benchmark
+    public Suggestions nestedCommand() throws CommandSyntaxException {
+        String arg = "give " + input + " --";
+        return commandSuggestions.suggest(Stubs.info(sender, "sudo ", arg), Stubs.builder("sudo ", arg)).join();
+    }
+}
@@ -0,0 +1,18 @@
+package gg.lode.bookshelfcmd;
+
+/**
+ * The body of a command executed off the main server thread.
+ *
+ * @see BookshelfCommand#executesAsync(AsyncCommandExecutor)
+ */
+@FunctionalInterface
+public interface AsyncCommandExecutor {
+
+    /**
+     * Run the command. Bukkit state must only be touched through {@link AsyncContext#sync(Runnable)}.
+     *
+     * @param context The sender, arguments and main thread access of this execution
+     * @throws Exception If the command failed, the sender is told and the error is logged
+     */
+    void run(AsyncContext context) throws Exception;
+}
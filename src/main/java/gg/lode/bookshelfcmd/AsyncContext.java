@@ -0,0 +1,114 @@
+package gg.lode.bookshelfcmd;
+
+import dev.jorel.commandapi.executors.CommandArguments;
+import org.bukkit.Bukkit;
+import org.bukkit.command.CommandSender;
+import org.bukkit.entity.Player;
+import org.bukkit.plugin.Plugin;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+/**
+ * An execution of an {@link AsyncCommandExecutor}.
+ * <p>
+ * The executor runs on a worker thread, so anything touching Bukkit state has to be marshalled
+ * back to the main thread with {@link #sync(Runnable)} or {@link #sync(Supplier)}. An execution is
+ * cancelled when it times out or the sender disconnects. Its worker thread is interrupted, and
+ * work handed to the main thread afterwards is skipped.
+ */
+public final class AsyncContext {
+
+    private final Plugin plugin;
+    private final CommandSender sender;
+    private final CommandArguments args;
+    private volatile boolean cancelled;
+
+    AsyncContext(Plugin plugin, CommandSender sender, CommandArguments args) {
+        this.plugin = plugin;
+        this.sender = sender;
+        this.args = args;
+    }
+
+    public CommandSender sender() {
+        return sender;
+    }
+
+    public CommandArguments args() {
+        return args;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * @throws CancellationException If this execution was cancelled
+     */
+    public void throwIfCancelled() {
+        if (cancelled) throw new CancellationException();
+    }
+
+    /**
+     * Send a message to the sender from the main thread. Dropped if the execution was cancelled
+     * or the sender is no longer online.
+     *
+     * @param message The message
+     */
+    public void reply(String message) {
+        sync(() -> sender.sendMessage(message));
+    }
+
+    /**
+     * Run a task on the main thread, without waiting for it.
+     *
+     * @param task The task, skipped if the execution is cancelled by the time it would run
+     */
+    public void sync(Runnable task) {
+        if (cancelled) return;
+        if (Bukkit.isPrimaryThread()) {
+            if (isReachable()) task.run();
+            return;
+        }
+        Bukkit.getScheduler().runTask(plugin, () -> {
+            if (!cancelled && isReachable()) task.run();
+        });
+    }
+
+    /**
+     * Compute a value on the main thread. Join the returned future to wait for it.
+     *
+     * @param task The computation
+     * @return The computed value, or a cancelled future if the execution is cancelled first
+     */
+    public <T> CompletableFuture<T> sync(Supplier<T> task) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        if (cancelled) {
+            result.cancel(false);
+            return result;
+        }
+        Runnable run = () -> {
+            if (cancelled) {
+                result.cancel(false);
+                return;
+            }
+            try {
+                result.complete(task.get());
+            } catch (Throwable throwable) {
+                result.completeExceptionally(throwable);
+            }
+        };
+        if (Bukkit.isPrimaryThread()) run.run();
+        else Bukkit.getScheduler().runTask(plugin, run);
+        return result;
+    }
+
+    void cancel() {
+        cancelled = true;
+    }
+
+    private boolean isReachable() {
+        return !(sender instanceof Player player) || player.isOnline();
+    }
+}
@@ -0,0 +1,184 @@
+package gg.lode.bookshelfcmd;
+
+import com.mojang.brigadier.exceptions.CommandSyntaxException;
+import dev.jorel.commandapi.CommandAPI;
+import dev.jorel.commandapi.exceptions.WrapperCommandSyntaxException;
+import dev.jorel.commandapi.executors.CommandArguments;
+import dev.jorel.commandapi.executors.CommandExecutor;
+import gg.lode.bookshelfcmd.util.BookshelfExecutors;
+import org.bukkit.Bukkit;
+import org.bukkit.command.CommandSender;
+import org.bukkit.entity.Player;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.plugin.java.JavaPlugin;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.*;
+import java.util.logging.Level;
+
+/**
+ * Runs the {@link AsyncCommandExecutor}s of one command on worker threads.
+ * <p>
+ * Executions of a command share a bounded executor, so a command hanging on a slow database
+ * rejects new executions instead of piling up threads. Running executions of a player are
+ * tracked, so they can be cancelled when the player disconnects.
+ */
+final class AsyncExecution {
+
+    static final int DEFAULT_MAX_CONCURRENT = 16;
+    static final Duration DEFAULT_TIMEOUT = Duration.ofSeconds(30);
+
+    private static final Map<UUID, Set<Task>> RUNNING = new ConcurrentHashMap<>();
+
+    private final String commandName;
+    private volatile int maxConcurrent = DEFAULT_MAX_CONCURRENT;
+    private volatile Duration timeout = DEFAULT_TIMEOUT;
+    private volatile Executor executor; // created on first execution
+
+    AsyncExecution(String commandName) {
+        this.commandName = commandName;
+    }
+
+    /**
+     * @param maxConcurrent The maximum number of executions running at once
+     * @param timeout       How long an execution may run before it is cancelled, or null for no limit
+     */
+    synchronized void configure(int maxConcurrent, Duration timeout) {
+        if (maxConcurrent <= 0) throw new IllegalArgumentException("maxConcurrent must be positive: " + maxConcurrent);
+        if (timeout != null && (timeout.isNegative() || timeout.isZero())) {
+            throw new IllegalArgumentException("timeout must be positive: " + timeout);
+        }
+        this.maxConcurrent = maxConcurrent;
+        this.timeout = timeout;
+        this.executor = null;
+    }
+
+    CommandExecutor executor(AsyncCommandExecutor body) {
+        return (sender, args) -> start(sender, args, body);
+    }
+
+    /**
+     * Cancel the running executions of a player, e.g. when they disconnect.
+     *
+     * @param player The player
+     */
+    static void cancel(Player player) {
+        Set<Task> tasks = RUNNING.remove(player.getUniqueId());
+        if (tasks == null) return;
+        for (Task task : tasks) {
+            task.cancel();
+        }
+    }
+
+    private void start(CommandSender sender, CommandArguments args, AsyncCommandExecutor body) throws WrapperCommandSyntaxException {
+        Plugin plugin = JavaPlugin.getProvidingPlugin(AsyncExecution.class);
+        Task task = new Task(new AsyncContext(plugin, sender, args), body);
+
+        // Tracked before submitting, so a task finishing right away is untracked after it was tracked
+        track(sender, task);
+        try {
+            executor().execute(task);
+        } catch (RejectedExecutionException e) {
+            untrack(sender, task);
+            throw CommandAPI.failWithString("/" + commandName + " is busy, try again shortly.");
+        }
+
+        Duration timeout = this.timeout;
+        CompletableFuture<Void> future = timeout == null ? task.future : task.future.orTimeout(timeout.toNanos(), TimeUnit.NANOSECONDS);
+        future.whenComplete((result, throwable) -> finish(plugin, sender, task, throwable));
+    }
+
+    private void finish(Plugin plugin, CommandSender sender, Task task, Throwable throwable) {
+        untrack(sender, task);
+        if (throwable instanceof CompletionException && throwable.getCause() != null) throwable = throwable.getCause();
+        if (throwable == null || throwable instanceof CancellationException) return;
+
+        if (throwable instanceof TimeoutException) {
+            task.cancel();
+            tell(plugin, sender, "/" + commandName + " took too long and was cancelled.");
+        } else if (throwable instanceof WrapperCommandSyntaxException || throwable instanceof CommandSyntaxException) {
+            tell(plugin, sender, throwable.getMessage());
+        } else if (!task.context.isCancelled()) {
+            plugin.getLogger().log(Level.WARNING, "Error while executing /" + commandName + " for " + sender.getName(), throwable);
+            tell(plugin, sender, "An error occurred while executing /" + commandName + ".");
+        }
+    }
+
+    private Executor executor() {
+        Executor executor = this.executor;
+        if (executor == null) {
+            synchronized (this) {
+                executor = this.executor;
+                if (executor == null) this.executor = executor = BookshelfExecutors.newBounded("bookshelf-" + commandName, maxConcurrent);
+            }
+        }
+        return executor;
+    }
+
+    private static void track(CommandSender sender, Task task) {
+        if (sender instanceof Player player) {
+            RUNNING.computeIfAbsent(player.getUniqueId(), uuid -> ConcurrentHashMap.newKeySet()).add(task);
+        }
+    }
+
+    private static void untrack(CommandSender sender, Task task) {
+        if (sender instanceof Player player) {
+            RUNNING.computeIfPresent(player.getUniqueId(), (uuid, tasks) -> {
+                tasks.remove(task);
+                return tasks.isEmpty() ? null : tasks;
+            });
+        }
+    }
+
+    // Unlike AsyncContext#reply, this also reaches the sender after the execution was cancelled
+    private static void tell(Plugin plugin, CommandSender sender, String message) {
+        Runnable send = () -> {
+            if (!(sender instanceof Player player) || player.isOnline()) sender.sendMessage(message);
+        };
+        if (Bukkit.isPrimaryThread()) send.run();
+        else Bukkit.getScheduler().runTask(plugin, send);
+    }
+
+    private static final class Task implements Runnable {
+        private final AsyncContext context;
+        private final AsyncCommandExecutor body;
+        private final CompletableFuture<Void> future = new CompletableFuture<>();
+        private Thread thread; // the worker running the body, guarded by this
+
+        private Task(AsyncContext context, AsyncCommandExecutor body) {
+            this.context = context;
+            this.body = body;
+        }
+
+        @Override
+        public void run() {
+            synchronized (this) {
+                if (future.isDone()) return;
+                thread = Thread.currentThread();
+            }
+            try {
+                body.run(context);
+                future.complete(null);
+            } catch (Throwable throwable) {
+                future.completeExceptionally(throwable);
+            } finally {
+                synchronized (this) {
+                    thread = null;
+                    // Don't leak an interrupt meant for this task into the next one on a pooled thread
+                    Thread.interrupted();
+                }
+            }
+        }
+
+        private void cancel() {
+            context.cancel();
+            future.cancel(false);
+            synchronized (this) {
+                if (thread != null) thread.interrupt();
+            }
+        }
+    }
+}
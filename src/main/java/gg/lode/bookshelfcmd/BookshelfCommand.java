@@ -1,10 +1,18 @@
 package gg.lode.bookshelfcmd;
 
 import dev.jorel.commandapi.CommandAPICommand;
+import gg.lode.bookshelfcmd.util.CommandMetrics;
+import gg.lode.bookshelfcmd.util.CommandRegistryVersion;
 import org.bukkit.plugin.java.JavaPlugin;
 
+import java.time.Duration;
+
 public abstract class BookshelfCommand extends CommandAPICommand {
 
+    private boolean lazy;
+    private boolean built;
+    private AsyncExecution async; // created by the first async executor or limit
+
     public BookshelfCommand(String commandName) {
         super(commandName);
     }
@@ -20,9 +28,93 @@ public abstract class BookshelfCommand extends CommandAPICommand {
         withAliases(aliases);
     }
 
+    /**
+     * Register only a lightweight stub with this command's permission, aliases and subcommand
+     * names. The full argument tree is built and swapped in the first time a sender holding
+     * the permission requests suggestions or executes the command.
+     *
+     * @return This command for chaining
+     */
+    public BookshelfCommand withLazyRegistration() {
+        this.lazy = true;
+        return this;
+    }
+
+    /**
+     * Execute this command off the main server thread, for commands waiting on a database or
+     * web request. Messages and Bukkit calls are marshalled back to the main thread through the
+     * {@link AsyncContext}. Executions are cancelled when they time out or the sender disconnects.
+     * <p>
+     * Example usage:
+     * <pre>{@code
+     * executesAsync(context -> {
+     *     int balance = database.balance(context.sender().getName());
+     *     context.reply("Balance: " + balance);
+     * });
+     * }</pre>
+     *
+     * @param executor The command body
+     * @return This command for chaining
+     * @see #withAsyncLimits(int, Duration)
+     */
+    public BookshelfCommand executesAsync(AsyncCommandExecutor executor) {
+        executes(async().executor(executor));
+        return this;
+    }
+
+    /**
+     * Limit the asynchronous executions of this command. By default, at most 16 run at once,
+     * and each may run for 30 seconds. Executions beyond the limit fail right away.
+     *
+     * @param maxConcurrent The maximum number of executions running at once
+     * @param timeout       How long an execution may run before it is cancelled, or null for no limit
+     * @return This command for chaining
+     */
+    public BookshelfCommand withAsyncLimits(int maxConcurrent, Duration timeout) {
+        async().configure(maxConcurrent, timeout);
+        return this;
+    }
+
+    private AsyncExecution async() {
+        if (async == null) async = new AsyncExecution(getName());
+        return async;
+    }
+
     @Override
     public void register(JavaPlugin plugin) {
+        BookshelfListener.register(plugin);
         register(plugin.getName().toLowerCase());
     }
 
+    @Override
+    public void register(String namespace) {
+        CommandTreeCompactor.track(namespace, getName(), getAliases());
+        if (lazy && !built) {
+            CommandSnapshot.Entry entry = CommandSnapshot.Entry.of(this, null);
+            CommandStub.register(JavaPlugin.getProvidingPlugin(getClass()), namespace, entry, () -> build(namespace, entry));
+            CommandRegistryVersion.bump();
+            return;
+        }
+        super.register(namespace);
+        instrument(namespace);
+        CommandRegistryVersion.bump();
+    }
+
+    private void build(String namespace, CommandSnapshot.Entry entry) {
+        if (built) return;
+        // Only marked as built once registered, a failed registration leaves the stub to retry
+        CommandStub.replace(JavaPlugin.getProvidingPlugin(getClass()), namespace, entry, () -> {
+            super.register(namespace);
+            instrument(namespace);
+        }, () -> build(namespace, entry));
+        built = true;
+    }
+
+    private void instrument(String namespace) {
+        CommandMetrics.instrument(namespace, getName());
+        for (String alias : getAliases()) {
+            CommandMetrics.instrument(namespace, alias);
+        }
+    }
+
 }
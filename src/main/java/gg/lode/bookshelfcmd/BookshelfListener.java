@@ -0,0 +1,87 @@
+package gg.lode.bookshelfcmd;
+
+import com.destroystokyo.paper.event.brigadier.AsyncPlayerSendCommandsEvent;
+import gg.lode.bookshelfcmd.argument.FlagArgument;
+import gg.lode.bookshelfcmd.util.CommandHelper;
+import gg.lode.bookshelfcmd.util.CommandRegistryVersion;
+import gg.lode.bookshelfcmd.util.PermissionFingerprint;
+import gg.lode.bookshelfcmd.util.SuggestionThrottle;
+import org.bukkit.Bukkit;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+import org.bukkit.event.server.PluginDisableEvent;
+import org.bukkit.event.server.PluginEnableEvent;
+import org.bukkit.event.server.ServerLoadEvent;
+import org.bukkit.plugin.java.JavaPlugin;
+
+/**
+ * Cleans up per-player state kept by Bookshelf arguments and helpers, compacts the
+ * command trees sent to players, and bumps the {@link CommandRegistryVersion} when other
+ * plugins may have registered or unregistered commands.
+ * <p>
+ * Registered once, the first time a {@link BookshelfCommand} is registered by a plugin.
+ */
+public final class BookshelfListener implements Listener {
+
+    private static BookshelfListener registered;
+
+    private BookshelfListener() {
+    }
+
+    /**
+     * Register the listener for the given plugin, if it has not been registered yet.
+     *
+     * @param plugin The plugin that owns the listener
+     */
+    public static synchronized void register(JavaPlugin plugin) {
+        if (registered != null) return;
+        registered = new BookshelfListener();
+        Bukkit.getPluginManager().registerEvents(registered, plugin);
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onJoin(PlayerJoinEvent event) {
+        // Cached offline data, such as the last seen time, is outdated once they join
+        CommandHelper.invalidate(event.getPlayer().getUniqueId());
+        PermissionFingerprint.invalidate(event.getPlayer());
+    }
+
+    @EventHandler(priority = EventPriority.HIGHEST)
+    public void onSendCommands(AsyncPlayerSendCommandsEvent<?> event) {
+        // Fired asynchronously first and then synchronously with the same tree, right before it is sent.
+        // The registered tree may only be read on the main thread, so only the latter compacts.
+        if (!event.isAsynchronous() && event.getCommandNode() != null) {
+            // Commands are resent when permissions are recalculated, so the cached fingerprint may be outdated
+            PermissionFingerprint.invalidate(event.getPlayer());
+            CommandTreeCompactor.compact(event.getCommandNode());
+        }
+    }
+
+    // Plugins register their commands while loading or enabling, and lose them when disabled
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onServerLoad(ServerLoadEvent event) {
+        CommandRegistryVersion.bump();
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPluginEnable(PluginEnableEvent event) {
+        CommandRegistryVersion.bump();
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPluginDisable(PluginDisableEvent event) {
+        CommandRegistryVersion.bump();
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onQuit(PlayerQuitEvent event) {
+        FlagArgument.clearCompletionState(event.getPlayer());
+        CommandHelper.invalidate(event.getPlayer().getUniqueId());
+        SuggestionThrottle.shared().evict(event.getPlayer());
+        PermissionFingerprint.invalidate(event.getPlayer());
+        AsyncExecution.cancel(event.getPlayer());
+    }
+}
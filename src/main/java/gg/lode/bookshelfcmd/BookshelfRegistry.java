@@ -0,0 +1,148 @@
+package gg.lode.bookshelfcmd;
+
+import com.mojang.brigadier.tree.CommandNode;
+import dev.jorel.commandapi.Brigadier;
+import dev.jorel.commandapi.CommandAPICommand;
+import gg.lode.bookshelfcmd.util.CommandRegistryVersion;
+import org.bukkit.plugin.java.JavaPlugin;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+
+/**
+ * Registers many commands at once, reusing a {@link CommandSnapshot} from a previous start.
+ * <p>
+ * Commands are added as factories, so nothing is constructed up front. The first start builds
+ * and registers every command, and records their structure in a snapshot. Later starts with the
+ * same plugin jar and vanilla command tree only register lightweight stubs from the snapshot,
+ * and build each real command the first time it is used.
+ * <p>
+ * Example usage:
+ * <pre>{@code
+ * new BookshelfRegistry(plugin)
+ *     .add("ban", BanCommand::new)
+ *     .add("kick", KickCommand::new)
+ *     .registerAll();
+ * }</pre>
+ */
+public class BookshelfRegistry {
+
+    private final JavaPlugin plugin;
+    private final String namespace;
+    private final Path snapshotFile;
+    private final Map<String, Supplier<? extends CommandAPICommand>> factories = new LinkedHashMap<>();
+    private final Map<String, CommandSnapshot.Entry> stubs = new HashMap<>();
+
+    public BookshelfRegistry(JavaPlugin plugin) {
+        this(plugin, plugin.getDataFolder().toPath().resolve("commands.snapshot"));
+    }
+
+    /**
+     * @param plugin       The plugin owning the commands
+     * @param snapshotFile Where the snapshot is stored
+     */
+    public BookshelfRegistry(JavaPlugin plugin, Path snapshotFile) {
+        this.plugin = plugin;
+        this.namespace = plugin.getName().toLowerCase();
+        this.snapshotFile = snapshotFile;
+    }
+
+    /**
+     * Add a command to register.
+     *
+     * @param name    The command name, which must match the name of the built command
+     * @param factory Builds the command
+     * @return This registry for chaining
+     */
+    public BookshelfRegistry add(String name, Supplier<? extends CommandAPICommand> factory) {
+        factories.put(name, factory);
+        return this;
+    }
+
+    /**
+     * Register every added command, from the snapshot when it is still valid.
+     * Must be called on the main server thread.
+     *
+     * @return true if the commands were registered as stubs from the snapshot
+     */
+    public boolean registerAll() {
+        BookshelfListener.register(plugin);
+        CommandSnapshot snapshot = CommandSnapshot.read(snapshotFile);
+
+        // Leave out our own commands, in case they are still registered from before a reload
+        Set<String> ignored = new HashSet<>(factories.keySet());
+        if (snapshot != null) {
+            for (CommandSnapshot.Entry entry : snapshot.getEntries()) ignored.addAll(entry.aliases());
+        }
+        long jarHash = CommandSnapshot.jarHash(plugin);
+        long vanillaHash = CommandSnapshot.treeHash(Brigadier.getRootNode(), ignored);
+
+        if (jarHash != 0 && snapshot != null && snapshot.matches(jarHash, vanillaHash, factories.keySet())) {
+            for (CommandSnapshot.Entry entry : snapshot.getEntries()) {
+                stubs.put(entry.name(), entry);
+                CommandStub.register(plugin, namespace, entry, () -> materialize(entry.name()));
+            }
+            CommandRegistryVersion.bump();
+            return true;
+        }
+
+        List<CommandSnapshot.Entry> entries = new ArrayList<>(factories.size());
+        for (Map.Entry<String, Supplier<? extends CommandAPICommand>> factory : factories.entrySet()) {
+            CommandAPICommand command = build(factory.getKey(), factory.getValue());
+            command.register(namespace);
+            CommandNode<?> node = Brigadier.getRootNode().getChild(command.getName());
+            entries.add(CommandSnapshot.Entry.of(command, node));
+        }
+        CommandRegistryVersion.bump();
+
+        try {
+            new CommandSnapshot(jarHash, vanillaHash, entries).write(snapshotFile);
+        } catch (IOException e) {
+            plugin.getLogger().log(Level.WARNING, "Could not write command snapshot to " + snapshotFile, e);
+        }
+        return false;
+    }
+
+    /**
+     * Build and register a command that is still a stub. Does nothing if it is already built.
+     * Must be called on the main server thread.
+     *
+     * @param name The command name
+     */
+    public void materialize(String name) {
+        CommandSnapshot.Entry stub = stubs.get(name);
+        if (stub == null) return;
+
+        // Build before touching the stub, and only forget it once the real command is registered
+        CommandAPICommand command;
+        try {
+            command = build(name, factories.get(name));
+        } catch (RuntimeException e) {
+            plugin.getLogger().log(Level.SEVERE, "Could not build /" + name + ", keeping its stub to retry on next use", e);
+            throw e;
+        }
+        CommandStub.replace(plugin, namespace, stub, () -> command.register(namespace), () -> materialize(name));
+        stubs.remove(name);
+    }
+
+    /**
+     * Delete the snapshot, so the next start builds every command again.
+     *
+     * @throws IOException If the snapshot could not be deleted
+     */
+    public void invalidate() throws IOException {
+        Files.deleteIfExists(snapshotFile);
+    }
+
+    private static CommandAPICommand build(String name, Supplier<? extends CommandAPICommand> factory) {
+        CommandAPICommand command = factory.get();
+        if (!command.getName().equals(name)) {
+            throw new IllegalStateException("Command registered as '" + name + "' is named '" + command.getName() + "'");
+        }
+        return command;
+    }
+}
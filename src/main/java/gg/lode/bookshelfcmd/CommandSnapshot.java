@@ -0,0 +1,323 @@
+package gg.lode.bookshelfcmd;
+
+import com.mojang.brigadier.tree.ArgumentCommandNode;
+import com.mojang.brigadier.tree.CommandNode;
+import com.mojang.brigadier.tree.LiteralCommandNode;
+import dev.jorel.commandapi.CommandAPICommand;
+import dev.jorel.commandapi.CommandPermission;
+import org.bukkit.command.CommandSender;
+import org.bukkit.plugin.java.JavaPlugin;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.function.Predicate;
+import java.util.zip.CRC32C;
+
+/**
+ * A compact description of registered Bookshelf commands, used to skip building them on startup.
+ * <p>
+ * A snapshot records the name, permission, aliases and node structure of each command, keyed by
+ * a hash of the plugin jar and a hash of the vanilla command tree. While both hashes are unchanged,
+ * the description is enough to register a lightweight stub per command, and the real command is
+ * only built when it is first used.
+ * <p>
+ * Snapshots are stored as plain text:
+ * <pre>
+ * bookshelf-snapshot 1
+ * jar 5f1c09a2
+ * vanilla 9e07d1c4b2a3f810
+ * command ban perm:myplugin.ban tempban,b
+ * node 1 L ip
+ * node 1 A target dev.jorel.commandapi.arguments.PlayerArgument
+ * </pre>
+ */
+public final class CommandSnapshot {
+
+    private static final String HEADER = "bookshelf-snapshot 1";
+
+    private final long jarHash;
+    private final long vanillaHash;
+    private final List<Entry> entries;
+
+    public CommandSnapshot(long jarHash, long vanillaHash, List<Entry> entries) {
+        this.jarHash = jarHash;
+        this.vanillaHash = vanillaHash;
+        this.entries = List.copyOf(entries);
+    }
+
+    public long getJarHash() {
+        return jarHash;
+    }
+
+    public long getVanillaHash() {
+        return vanillaHash;
+    }
+
+    public List<Entry> getEntries() {
+        return entries;
+    }
+
+    /**
+     * @param jarHash     The current plugin jar hash
+     * @param vanillaHash The current vanilla tree hash
+     * @param names       The names of the commands that should be registered
+     * @return Whether this snapshot still describes exactly those commands
+     */
+    public boolean matches(long jarHash, long vanillaHash, Collection<String> names) {
+        if (this.jarHash != jarHash || this.vanillaHash != vanillaHash || entries.size() != names.size()) return false;
+        for (Entry entry : entries) {
+            if (!names.contains(entry.name())) return false;
+        }
+        return true;
+    }
+
+    /**
+     * A described command.
+     *
+     * @param name       The command name
+     * @param permission The encoded permission, see {@link #encodePermission(CommandPermission)}
+     * @param aliases    The command aliases
+     * @param tree       The node structure below the command literal
+     */
+    public record Entry(String name, String permission, List<String> aliases, Node tree) {
+
+        /**
+         * Describe a registered command.
+         *
+         * @param command The command
+         * @param node    The command's literal node in the Brigadier tree, or null if not built
+         * @return The description
+         */
+        public static Entry of(CommandAPICommand command, CommandNode<?> node) {
+            return new Entry(command.getName(), encodePermission(command.getPermission()), List.of(command.getAliases()),
+                    node == null ? describe(command) : describe(node));
+        }
+
+        /**
+         * @return A check for the described permission
+         */
+        public Predicate<CommandSender> permissionCheck() {
+            if (permission.equals("none")) return sender -> true;
+            if (permission.equals("op")) return CommandSender::isOp;
+            boolean negated = permission.startsWith("!");
+            String name = permission.substring(negated ? 6 : 5); // strip "!perm:" or "perm:"
+            return negated ? sender -> !sender.hasPermission(name) : sender -> sender.hasPermission(name);
+        }
+    }
+
+    /**
+     * A described node.
+     *
+     * @param name     The node name
+     * @param literal  Whether the node is a literal, otherwise it is an argument
+     * @param type     The argument type class, null for literals
+     * @param children The child nodes
+     */
+    public record Node(String name, boolean literal, String type, List<Node> children) {
+    }
+
+    /**
+     * Describe a Brigadier node and its children. Redirects are not followed.
+     *
+     * @param node The node to describe
+     * @return The description
+     */
+    public static Node describe(CommandNode<?> node) {
+        List<Node> children = new ArrayList<>(node.getChildren().size());
+        if (node.getRedirect() == null) {
+            for (CommandNode<?> child : node.getChildren()) {
+                children.add(describe(child));
+            }
+        }
+        String type = node instanceof ArgumentCommandNode<?, ?> argument ? argument.getType().getClass().getName() : null;
+        return new Node(node.getName(), node instanceof LiteralCommandNode<?>, type, children);
+    }
+
+    /**
+     * Describe a command that has not been built, from its subcommands.
+     * <p>
+     * Subcommands and their aliases become literals. The arguments of a command are not
+     * described individually, a single argument node stands in for all of them.
+     *
+     * @param command The command to describe
+     * @return The description
+     */
+    public static Node describe(CommandAPICommand command) {
+        List<Node> children = new ArrayList<>();
+        for (CommandAPICommand subcommand : command.getSubcommands()) {
+            Node described = describe(subcommand);
+            children.add(described);
+            for (String alias : subcommand.getAliases()) {
+                children.add(new Node(alias, true, null, described.children()));
+            }
+        }
+        if (!command.getArguments().isEmpty()) children.add(new Node("arguments", false, null, List.of()));
+        return new Node(command.getName(), true, null, children);
+    }
+
+    public static String encodePermission(CommandPermission permission) {
+        if (permission == null || permission.equals(CommandPermission.NONE)) return "none";
+        if (permission.equals(CommandPermission.OP)) return "op";
+        return permission.getPermission()
+                .map(name -> (permission.isNegated() ? "!perm:" : "perm:") + name)
+                .orElse("none");
+    }
+
+    /**
+     * Hash the jar the plugin was loaded from.
+     *
+     * @param plugin The plugin
+     * @return The hash, or 0 if the jar could not be read
+     */
+    public static long jarHash(JavaPlugin plugin) {
+        try {
+            Path jar = Path.of(plugin.getClass().getProtectionDomain().getCodeSource().getLocation().toURI());
+            CRC32C crc = new CRC32C();
+            byte[] buffer = new byte[64 * 1024];
+            try (InputStream in = Files.newInputStream(jar)) {
+                int read;
+                while ((read = in.read(buffer)) > 0) crc.update(buffer, 0, read);
+            }
+            return (Files.size(jar) << 32) ^ crc.getValue();
+        } catch (Exception e) {
+            return 0;
+        }
+    }
+
+    /**
+     * Hash the structure of the command tree, ignoring the given commands.
+     *
+     * @param root    The Brigadier root node
+     * @param ignored Names of top-level nodes to leave out, e.g. the commands being snapshotted
+     * @return The structural hash
+     */
+    public static long treeHash(CommandNode<?> root, Collection<String> ignored) {
+        // Top-level nodes are hashed independently and summed, so registration order doesn't matter
+        long hash = 0;
+        Map<CommandNode<?>, Long> memo = new IdentityHashMap<>();
+        for (CommandNode<?> child : root.getChildren()) {
+            String name = child.getName();
+            int namespace = name.indexOf(':');
+            if (ignored.contains(name) || (namespace >= 0 && ignored.contains(name.substring(namespace + 1)))) continue;
+            hash += mix(nodeHash(child, memo));
+        }
+        return hash;
+    }
+
+    private static long nodeHash(CommandNode<?> node, Map<CommandNode<?>, Long> memo) {
+        Long cached = memo.get(node);
+        if (cached != null) return cached;
+
+        long hash = node.getName().hashCode() * 31L + (node instanceof LiteralCommandNode<?> ? 1 : 2);
+        if (node instanceof ArgumentCommandNode<?, ?> argument) hash = hash * 31 + argument.getType().getClass().getName().hashCode();
+        if (node.getRedirect() != null) {
+            hash = hash * 31 + node.getRedirect().getName().hashCode();
+        } else {
+            long children = 0;
+            for (CommandNode<?> child : node.getChildren()) {
+                children += mix(nodeHash(child, memo));
+            }
+            hash = hash * 31 + children;
+        }
+        memo.put(node, hash);
+        return hash;
+    }
+
+    private static long mix(long value) {
+        value = (value ^ (value >>> 33)) * 0xff51afd7ed558ccdL;
+        return value ^ (value >>> 33);
+    }
+
+    /**
+     * Read a snapshot.
+     *
+     * @param file The snapshot file
+     * @return The snapshot, or null if the file is missing or unreadable
+     */
+    public static CommandSnapshot read(Path file) {
+        if (!Files.isRegularFile(file)) return null;
+        try {
+            List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+            if (lines.size() < 3 || !lines.get(0).equals(HEADER)) return null;
+            long jarHash = Long.parseUnsignedLong(lines.get(1).substring(4), 16);
+            long vanillaHash = Long.parseUnsignedLong(lines.get(2).substring(8), 16);
+
+            List<Entry> entries = new ArrayList<>();
+            String name = null, permission = null;
+            List<String> aliases = null;
+            Deque<List<Node>> stack = new ArrayDeque<>();
+            for (int i = 3; i < lines.size(); i++) {
+                String[] parts = lines.get(i).split(" ");
+                if (parts[0].equals("command")) {
+                    if (name != null) entries.add(new Entry(name, permission, aliases, new Node(name, true, null, finish(stack))));
+                    name = parts[1];
+                    permission = parts[2];
+                    aliases = parts[3].equals("-") ? List.of() : List.of(parts[3].split(","));
+                    stack.clear();
+                    stack.push(new ArrayList<>());
+                } else if (parts[0].equals("node") && name != null) {
+                    int depth = Integer.parseInt(parts[1]);
+                    while (stack.size() > depth) {
+                        List<Node> children = stack.pop();
+                        attach(stack.peek(), children);
+                    }
+                    stack.peek().add(new Node(parts[3], parts[2].equals("L"), parts.length > 4 ? parts[4] : null, List.of()));
+                    stack.push(new ArrayList<>());
+                }
+            }
+            if (name != null) entries.add(new Entry(name, permission, aliases, new Node(name, true, null, finish(stack))));
+            return new CommandSnapshot(jarHash, vanillaHash, entries);
+        } catch (IOException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    // Replace the last node of the parent level with a copy holding its collected children
+    private static void attach(List<Node> level, List<Node> children) {
+        if (children.isEmpty()) return;
+        Node last = level.remove(level.size() - 1);
+        level.add(new Node(last.name(), last.literal(), last.type(), List.copyOf(children)));
+    }
+
+    private static List<Node> finish(Deque<List<Node>> stack) {
+        while (stack.size() > 1) {
+            List<Node> children = stack.pop();
+            attach(stack.peek(), children);
+        }
+        return stack.isEmpty() ? List.of() : List.copyOf(stack.pop());
+    }
+
+    /**
+     * Write this snapshot.
+     *
+     * @param file The snapshot file
+     * @throws IOException If the file could not be written
+     */
+    public void write(Path file) throws IOException {
+        StringBuilder out = new StringBuilder(HEADER).append('\n');
+        out.append("jar ").append(Long.toHexString(jarHash)).append('\n');
+        out.append("vanilla ").append(Long.toHexString(vanillaHash)).append('\n');
+        for (Entry entry : entries) {
+            out.append("command ").append(entry.name()).append(' ').append(entry.permission()).append(' ')
+                    .append(entry.aliases().isEmpty() ? "-" : String.join(",", entry.aliases())).append('\n');
+            for (Node child : entry.tree().children()) {
+                writeNode(out, child, 1);
+            }
+        }
+        if (file.getParent() != null) Files.createDirectories(file.getParent());
+        Files.writeString(file, out, StandardCharsets.UTF_8);
+    }
+
+    private static void writeNode(StringBuilder out, Node node, int depth) {
+        out.append("node ").append(depth).append(' ').append(node.literal() ? 'L' : 'A').append(' ').append(node.name());
+        if (node.type() != null) out.append(' ').append(node.type());
+        out.append('\n');
+        for (Node child : node.children()) {
+            writeNode(out, child, depth + 1);
+        }
+    }
+}
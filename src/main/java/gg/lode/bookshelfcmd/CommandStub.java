@@ -0,0 +1,172 @@
+package gg.lode.bookshelfcmd;
+
+import com.mojang.brigadier.CommandDispatcher;
+import com.mojang.brigadier.arguments.StringArgumentType;
+import com.mojang.brigadier.builder.ArgumentBuilder;
+import com.mojang.brigadier.builder.LiteralArgumentBuilder;
+import com.mojang.brigadier.builder.RequiredArgumentBuilder;
+import com.mojang.brigadier.context.CommandContext;
+import com.mojang.brigadier.exceptions.CommandSyntaxException;
+import com.mojang.brigadier.suggestion.Suggestions;
+import com.mojang.brigadier.suggestion.SuggestionsBuilder;
+import dev.jorel.commandapi.Brigadier;
+import dev.jorel.commandapi.CommandAPI;
+import dev.jorel.commandapi.CommandAPIBukkit;
+import dev.jorel.commandapi.CommandAPIPaper;
+import gg.lode.bookshelfcmd.util.CommandRegistryVersion;
+import org.bukkit.Bukkit;
+import org.bukkit.command.CommandSender;
+import org.bukkit.entity.Player;
+import org.bukkit.plugin.java.JavaPlugin;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Predicate;
+import java.util.logging.Level;
+
+/**
+ * A lightweight placeholder for a command that has not been built yet.
+ * <p>
+ * The stub mirrors the literal structure of the command, with a greedy argument catching
+ * everything else. The first time a permitted sender executes it or requests suggestions,
+ * the real command is built and registered in its place, and the input is dispatched again
+ * against the real command.
+ */
+final class CommandStub {
+
+    private static final String REST = "arguments";
+
+    private final JavaPlugin plugin;
+    private final Predicate<CommandSender> permission;
+    private final Runnable materialize;
+    private boolean redispatching;
+
+    private CommandStub(JavaPlugin plugin, Predicate<CommandSender> permission, Runnable materialize) {
+        this.plugin = plugin;
+        this.permission = permission;
+        this.materialize = materialize;
+    }
+
+    /**
+     * Register a stub for the described command and its aliases.
+     *
+     * @param plugin      The plugin owning the command
+     * @param namespace   The namespace to register under
+     * @param entry       The command description
+     * @param materialize Builds and registers the real command, replacing the stub. Called on the main thread.
+     */
+    static void register(JavaPlugin plugin, String namespace, CommandSnapshot.Entry entry, Runnable materialize) {
+        CommandStub stub = new CommandStub(plugin, entry.permissionCheck(), materialize);
+        CommandAPIPaper.getPaper().registerCommandNode(stub.literal(entry.name(), entry.tree()), namespace);
+        for (String alias : entry.aliases()) {
+            CommandAPIPaper.getPaper().registerCommandNode(stub.literal(alias, entry.tree()), namespace);
+        }
+    }
+
+    /**
+     * Replace a registered stub with the real command.
+     * <p>
+     * If registering the real command fails, whatever it registered is removed and the stub is
+     * registered again, so the next use retries instead of the command being gone until restart.
+     *
+     * @param plugin      The plugin owning the command
+     * @param namespace   The namespace the stub was registered under
+     * @param entry       The command description the stub was registered from
+     * @param register    Registers the real command
+     * @param materialize The stub's materializer, for registering the stub again
+     * @throws RuntimeException If registering the real command failed, after it was logged and the stub restored
+     */
+    static void replace(JavaPlugin plugin, String namespace, CommandSnapshot.Entry entry, Runnable register, Runnable materialize) {
+        unregister(entry);
+        try {
+            register.run();
+        } catch (RuntimeException e) {
+            plugin.getLogger().log(Level.SEVERE, "Could not register /" + entry.name() + ", keeping its stub to retry on next use", e);
+            unregister(entry);
+            register(plugin, namespace, entry, materialize);
+            throw e;
+        }
+        CommandRegistryVersion.bump();
+
+        // The stub tree was sent to clients, replace it with the real one
+        for (Player player : Bukkit.getOnlinePlayers()) {
+            player.updateCommands();
+        }
+    }
+
+    private static void unregister(CommandSnapshot.Entry entry) {
+        CommandAPI.unregister(entry.name(), true);
+        for (String alias : entry.aliases()) {
+            CommandAPI.unregister(alias, true);
+        }
+    }
+
+    private LiteralArgumentBuilder<Object> literal(String name, CommandSnapshot.Node node) {
+        LiteralArgumentBuilder<Object> literal = LiteralArgumentBuilder.<Object>literal(name);
+        literal.requires(source -> permission.test(senderOf(source)));
+        return skeleton(literal, node);
+    }
+
+    // Only literals are rebuilt, argument branches collapse into a single greedy argument
+    private <T extends ArgumentBuilder<Object, T>> T skeleton(T builder, CommandSnapshot.Node node) {
+        builder.executes(this::execute);
+        boolean hasArguments = false;
+        for (CommandSnapshot.Node child : node.children()) {
+            if (child.literal() && !child.name().equals(REST)) {
+                builder.then(skeleton(LiteralArgumentBuilder.<Object>literal(child.name()), child));
+            } else {
+                hasArguments = true;
+            }
+        }
+        if (hasArguments || node.children().isEmpty()) {
+            builder.then(RequiredArgumentBuilder.<Object, String>argument(REST, StringArgumentType.greedyString())
+                    .suggests(this::suggest)
+                    .executes(this::execute));
+        }
+        return builder;
+    }
+
+    @SuppressWarnings("unchecked")
+    private int execute(CommandContext<Object> context) throws CommandSyntaxException {
+        // Still dispatching to this stub, so the real command was not registered
+        if (redispatching) return 0;
+        materialize.run();
+
+        CommandDispatcher<Object> dispatcher = Brigadier.getCommandDispatcher();
+        redispatching = true;
+        try {
+            return dispatcher.execute(dispatcher.parse(context.getInput(), context.getSource()));
+        } finally {
+            redispatching = false;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private CompletableFuture<Suggestions> suggest(CommandContext<Object> context, SuggestionsBuilder builder) {
+        if (redispatching) return builder.buildFuture();
+        if (!Bukkit.isPrimaryThread()) {
+            // Registration has to happen on the main thread, the next request sees the real command
+            Bukkit.getScheduler().runTask(plugin, materialize);
+            return builder.buildFuture();
+        }
+        try {
+            materialize.run();
+        } catch (RuntimeException e) {
+            // Already logged, the stub stays registered and the next request retries
+            return builder.buildFuture();
+        }
+
+        CommandDispatcher<Object> dispatcher = Brigadier.getCommandDispatcher();
+        String input = builder.getInput();
+        redispatching = true;
+        try {
+            return dispatcher.getCompletionSuggestions(dispatcher.parse(input, context.getSource()), input.length());
+        } finally {
+            redispatching = false;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static CommandSender senderOf(Object source) {
+        return CommandAPIBukkit.<Object>get().getCommandSenderFromCommandSource(source).getSource();
+    }
+}
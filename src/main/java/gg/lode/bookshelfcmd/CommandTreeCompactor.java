@@ -0,0 +1,91 @@
+package gg.lode.bookshelfcmd;
+
+import com.mojang.brigadier.builder.LiteralArgumentBuilder;
+import com.mojang.brigadier.tree.CommandNode;
+import com.mojang.brigadier.tree.RootCommandNode;
+import dev.jorel.commandapi.Brigadier;
+
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Shrinks the command tree sent to players.
+ * <p>
+ * CommandAPI registers every alias of a command as a full copy of its tree, and the server copies
+ * each of them again into the tree it sends. For Bookshelf commands, the alias nodes of the sent
+ * tree are replaced with literals redirecting to the command, which the client resolves exactly
+ * like the copy. An alias label is only replaced while the registered node under it is still the
+ * copy of the tracked command, not when another plugin or vanilla has taken the label over.
+ * The redirects point at the player's own, already filtered command node, so nothing they
+ * can't see is sent.
+ */
+final class CommandTreeCompactor {
+
+    private static final Map<String, String> ALIASES = new ConcurrentHashMap<>(); // alias -> command, plain and namespaced
+
+    private CommandTreeCompactor() {
+    }
+
+    /**
+     * Remember the aliases of a registered command, so they are sent as redirects.
+     *
+     * @param namespace The namespace the command was registered under
+     * @param name      The command name
+     * @param aliases   The command aliases
+     */
+    static void track(String namespace, String name, String[] aliases) {
+        for (String alias : aliases) {
+            ALIASES.put(alias, name);
+            ALIASES.put(namespace + ":" + alias, namespace + ":" + name);
+        }
+    }
+
+    /**
+     * Replace the Bookshelf alias nodes of a tree about to be sent with redirects.
+     * Must be called on the main thread, as it reads the registered command tree.
+     *
+     * @param root The root of the sent tree, already filtered to what the player may use
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    static void compact(RootCommandNode<?> root) {
+        if (ALIASES.isEmpty()) return;
+        RootCommandNode<Object> registered = (RootCommandNode<Object>) Brigadier.getRootNode();
+
+        RootCommandNode<Object> target = (RootCommandNode) root;
+        for (CommandNode<Object> node : new ArrayList<>(target.getChildren())) {
+            String alias = node.getName();
+            String name = ALIASES.get(alias);
+            if (name == null || !isAliasOf(registered.getChild(alias), registered.getChild(name))) continue;
+
+            CommandNode<Object> command = target.getChild(name);
+            if (command == null || command.getRedirect() != null) continue;
+
+            replace(target, node, LiteralArgumentBuilder.literal(alias)
+                    .requires(node.getRequirement())
+                    .executes(node.getCommand())
+                    .redirect(command)
+                    .build());
+        }
+    }
+
+    /**
+     * @return Whether the registered alias node is still the copy of the registered command
+     * node that CommandAPI made, sharing its executor and children
+     */
+    private static boolean isAliasOf(CommandNode<Object> alias, CommandNode<Object> command) {
+        if (alias == null || command == null || alias == command || alias.getRedirect() != null) return false;
+        if (alias.getCommand() != command.getCommand() || alias.getChildren().size() != command.getChildren().size()) return false;
+        for (CommandNode<Object> child : command.getChildren()) {
+            if (!Objects.equals(alias.getChild(child.getName()), child)) return false;
+        }
+        return true;
+    }
+
+    private static void replace(RootCommandNode<Object> root, CommandNode<Object> existing, CommandNode<Object> replacement) {
+        // The children view is backed by the node, and addChild only merges into nodes still present
+        root.getChildren().remove(existing);
+        root.addChild(replacement);
+    }
+}
@@ -0,0 +1,55 @@
+package gg.lode.bookshelfcmd;
+
+import dev.jorel.commandapi.arguments.IntegerArgument;
+import dev.jorel.commandapi.arguments.MultiLiteralArgument;
+import gg.lode.bookshelfcmd.util.CommandMetrics;
+import org.bukkit.command.CommandSender;
+
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Admin command printing the slowest Bookshelf commands and suggestion providers.
+ * <p>
+ * Example usage:
+ * <pre>{@code
+ * CommandMetrics.enable();
+ * new MetricsCommand("bookshelfmetrics", "myplugin.metrics").register(plugin);
+ * }</pre>
+ * Then {@code /bookshelfmetrics suggestion 5} prints the five slowest suggestion providers.
+ */
+public class MetricsCommand extends BookshelfCommand {
+
+    public MetricsCommand(String commandName, String permission) {
+        super(commandName, permission);
+        withOptionalArguments(new MultiLiteralArgument("kind", "execution", "suggestion"), new IntegerArgument("count", 1, 50));
+        executes((sender, args) -> {
+            String kind = (String) args.getOrDefault("kind", "execution");
+            int count = (int) args.getOrDefault("count", 10);
+            print(sender, CommandMetrics.Kind.valueOf(kind.toUpperCase(Locale.ROOT)), count);
+        });
+    }
+
+    private static void print(CommandSender sender, CommandMetrics.Kind kind, int count) {
+        if (!CommandMetrics.isEnabled()) {
+            sender.sendMessage("Command metrics are disabled, showing previously recorded metrics only.");
+        }
+
+        List<CommandMetrics.Snapshot> slowest = CommandMetrics.slowest(kind, count);
+        if (slowest.isEmpty()) {
+            sender.sendMessage("No " + kind.name().toLowerCase(Locale.ROOT) + " metrics recorded.");
+            return;
+        }
+
+        sender.sendMessage("Slowest by " + kind.name().toLowerCase(Locale.ROOT) + " p99:");
+        for (CommandMetrics.Snapshot snapshot : slowest) {
+            sender.sendMessage(String.format(Locale.ROOT, "%s: n=%d mean=%s p99<=%s max=%s",
+                    snapshot.name(), snapshot.count(), millis(snapshot.meanNanos()),
+                    millis(snapshot.percentile(0.99)), millis(snapshot.maxNanos())));
+        }
+    }
+
+    private static String millis(double nanos) {
+        return String.format(Locale.ROOT, "%.3fms", nanos / 1_000_000d);
+    }
+}
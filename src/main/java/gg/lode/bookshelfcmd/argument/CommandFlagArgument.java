@@ -2,11 +2,19 @@ package gg.lode.bookshelfcmd.argument;
 
 import com.mojang.brigadier.StringReader;
 import com.mojang.brigadier.exceptions.CommandSyntaxException;
+import com.mojang.brigadier.suggestion.Suggestions;
+import com.mojang.brigadier.suggestion.SuggestionsBuilder;
 import dev.jorel.commandapi.CommandAPIBukkit;
 import dev.jorel.commandapi.SuggestionInfo;
 import dev.jorel.commandapi.arguments.ArgumentSuggestions;
 import dev.jorel.commandapi.arguments.SuggestionsBranch;
 import dev.jorel.commandapi.executors.CommandArguments;
+import gg.lode.bookshelfcmd.util.BookshelfExecutors;
+import gg.lode.bookshelfcmd.util.CommandIndex;
+import gg.lode.bookshelfcmd.util.ExpiringCache;
+import gg.lode.bookshelfcmd.util.PermissionFingerprint;
+import gg.lode.bookshelfcmd.util.PrefixIndex;
+import gg.lode.bookshelfcmd.util.SuggestionThrottle;
 import org.bukkit.FluidCollisionMode;
 import org.bukkit.Location;
 import org.bukkit.block.Block;
@@ -15,147 +23,302 @@ import org.bukkit.command.CommandMap;
 import org.bukkit.command.CommandSender;
 import org.bukkit.entity.Player;
 
+import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Supplier;
 
 public class CommandFlagArgument extends FlagArgument {
+
+    // Whether a Command subclass overrides the tabComplete overload that receives a Location
+    private static final ClassValue<Boolean> USES_LOCATION = new ClassValue<>() {
+        @Override
+        protected Boolean computeValue(Class<?> type) {
+            try {
+                return type.getMethod("tabComplete", CommandSender.class, String.class, String[].class, Location.class)
+                        .getDeclaringClass() != Command.class;
+            } catch (NoSuchMethodException e) {
+                return true;
+            }
+        }
+    };
+
     private final SuggestionsBranch<CommandSender> replacements = SuggestionsBranch.suggest();
+    private Executor asyncExecutor; // null when completing on the calling thread
+    private ExpiringCache<CompletionKey, List<String>> commandNameCache; // null when not caching
 
     public CommandFlagArgument(String nodeName, Set<Character> flags, Set<Character> valueFlags, Set<String> wordFlags) {
         super(nodeName, flags, valueFlags, wordFlags);
+        setSuggestions(this::suggestCommand);
+    }
 
-        replaceSuggestions((info, builder) -> {
-            // Extract information
-            CommandSender sender = info.sender();
-            CommandMap commandMap = CommandAPIBukkit.get().getCommandMap();
-            String command = info.currentArg();
+    public CommandFlagArgument(String nodeName, Set<Character> flags) {
+        this(nodeName, flags, Set.of(), Set.of());
+    }
 
-            // Setup context for errors
-            StringReader context = new StringReader(command);
+    public CommandFlagArgument(String nodeName, Set<Character> flags, Set<Character> valueFlags) {
+        this(nodeName, flags, valueFlags, Set.of());
+    }
 
-            if (!command.contains(" ")) {
-                // Suggesting command name
-                ArgumentSuggestions<CommandSender> replacement = replacements.getNextSuggestion(sender);
-                if (replacement != null) {
-                    return replacement.suggest(new SuggestionInfo<>(sender, new CommandArguments(new Object[0], new LinkedHashMap<>(), new String[0], new LinkedHashMap<>(), info.currentInput()), command, command), builder);
-                }
+    /**
+     * Complete nested commands off the main server thread, using the shared
+     * {@link BookshelfExecutors#suggestions()} executor.
+     * <p>
+     * Only the target block lookup stays on the calling thread, and only for commands that
+     * actually use the location. The nested command's completer must be safe to call asynchronously.
+     *
+     * @return This argument for chaining
+     */
+    public CommandFlagArgument withAsyncCompletion() {
+        return withAsyncCompletion(BookshelfExecutors.suggestions());
+    }
 
-                List<String> results = commandMap.tabComplete(sender, command);
-                // No applicable commands
-                if (results == null) {
-                    throw CommandSyntaxException.BUILT_IN_EXCEPTIONS.dispatcherUnknownCommand().createWithContext(context);
-                }
+    /**
+     * Complete nested commands on the given executor.
+     *
+     * @param executor The executor to complete on, or null to complete on the calling thread
+     * @return This argument for chaining
+     * @see #withAsyncCompletion()
+     */
+    public CommandFlagArgument withAsyncCompletion(Executor executor) {
+        this.asyncExecutor = executor;
+        return this;
+    }
 
-                // Remove / that gets prefixed to command name if the sender is a player
-                if (sender instanceof Player) {
-                    for (String result : results) {
-                        builder.suggest(result.substring(1));
-                    }
-                } else {
-                    for (String result : results) {
-                        builder.suggest(result);
-                    }
-                }
+    /**
+     * Cache command name completions for one second, up to 1024 distinct prefixes.
+     *
+     * @return This argument for chaining
+     * @see #withCompletionCache(Duration, int)
+     */
+    public CommandFlagArgument withCompletionCache() {
+        return withCompletionCache(Duration.ofSeconds(1), 1024);
+    }
 
-                return builder.buildFuture();
-            }
+    /**
+     * Cache the command name completions of the first token.
+     * <p>
+     * Entries are shared by all senders with the same effective permissions, so many players
+     * opening chat at once only check command permissions once per prefix. Entries are invalidated
+     * when commands are registered or unregistered, and a permission change moves the sender
+     * to a different entry.
+     *
+     * @param ttl     How long a completion stays valid
+     * @param maxSize The maximum number of cached prefixes
+     * @return This argument for chaining
+     */
+    public CommandFlagArgument withCompletionCache(Duration ttl, int maxSize) {
+        this.commandNameCache = new ExpiringCache<>(maxSize, ttl);
+        return this;
+    }
 
+    @Override
+    public CommandFlagArgument withConverter(char flag, FlagConverter<?> converter) {
+        super.withConverter(flag, converter);
+        return this;
+    }
 
-            // Verify commandLabel
-            String commandLabel = command.substring(0, command.indexOf(" "));
-            Command target = commandMap.getCommand(commandLabel);
-            if (target == null) {
-                throw CommandSyntaxException.BUILT_IN_EXCEPTIONS.dispatcherUnknownCommand().createWithContext(context);
-            }
+    @Override
+    public CommandFlagArgument withConverter(String word, FlagConverter<?> converter) {
+        super.withConverter(word, converter);
+        return this;
+    }
 
-            // Get arguments
-            String[] arguments = command.split(" ");
-            if (!arguments[0].isEmpty() && command.endsWith(" ")) {
-                // If command ends with space add an empty argument
-                arguments = Arrays.copyOf(arguments, arguments.length + 1);
-                arguments[arguments.length - 1] = "";
-            }
+    @Override
+    public CommandFlagArgument withValueSuggestions(char flag, ValueSuggestions suggestions) {
+        super.withValueSuggestions(flag, suggestions);
+        return this;
+    }
 
-            // Build suggestion
-            builder = builder.createOffset(builder.getStart() + command.lastIndexOf(" ") + 1);
+    @Override
+    public CommandFlagArgument withValueSuggestions(String word, ValueSuggestions suggestions) {
+        super.withValueSuggestions(word, suggestions);
+        return this;
+    }
+
+    @Override
+    public CommandFlagArgument withFuzzyWordFlags() {
+        super.withFuzzyWordFlags();
+        return this;
+    }
+
+    @Override
+    public CommandFlagArgument withThrottle() {
+        super.withThrottle();
+        return this;
+    }
+
+    /**
+     * Coalesce suggestion requests per sender. Superseded requests skip the nested
+     * command's completer and the target block lookup entirely.
+     *
+     * @param throttle The throttle to use, or null to serve every request
+     * @return This argument for chaining
+     */
+    @Override
+    public CommandFlagArgument withThrottle(SuggestionThrottle throttle) {
+        super.withThrottle(throttle);
+        return this;
+    }
 
-            int lastIndex = arguments.length - 1;
-            String[] previousArguments = Arrays.copyOf(arguments, lastIndex);
-            ArgumentSuggestions<CommandSender> replacement = replacements.getNextSuggestion(sender, previousArguments);
+    /**
+     * @return The command map nested commands are resolved against
+     */
+    protected CommandMap getCommandMap() {
+        return CommandAPIBukkit.get().getCommandMap();
+    }
+
+    private CompletableFuture<Suggestions> suggestCommand(SuggestionInfo<CommandSender> info, SuggestionsBuilder builder) throws CommandSyntaxException {
+        // Extract information
+        CommandSender sender = info.sender();
+        CommandMap commandMap = getCommandMap();
+        CommandIndex index = CommandIndex.of(commandMap);
+        String command = info.currentArg();
+
+        // Setup context for errors
+        StringReader context = new StringReader(command);
+
+        if (!command.contains(" ")) {
+            // Suggesting command name
+            ArgumentSuggestions<CommandSender> replacement = replacements.getNextSuggestion(sender);
             if (replacement != null) {
-                return replacement.suggest(new SuggestionInfo<>(sender, new CommandArguments(previousArguments, new LinkedHashMap<>(), previousArguments, new LinkedHashMap<>(), info.currentInput()), command, arguments[lastIndex]), builder);
+                return replacement.suggest(new SuggestionInfo<>(sender, new CommandArguments(new Object[0], new LinkedHashMap<>(), new String[0], new LinkedHashMap<>(), info.currentInput()), command, command), builder);
             }
 
-            // Remove command name from arguments for normal tab-completion
-            arguments = Arrays.copyOfRange(arguments, 1, arguments.length);
-
-            // Get location sender is looking at if they are a Player, matching vanilla behavior
-            // No builtin Commands use the location parameter, but they could
-            Location location = null;
-            if (sender instanceof Player player) {
-                Block block = player.getTargetBlockExact(5, FluidCollisionMode.NEVER);
-                if (block != null) {
-                    location = block.getLocation();
+            CompletionKey key = null;
+            if (commandNameCache != null) {
+                key = new CompletionKey(PermissionFingerprint.cached(sender), index.generation(), command);
+                List<String> cached = commandNameCache.get(key);
+                if (cached != null) {
+                    cached.forEach(builder::suggest);
+                    return builder.buildFuture();
                 }
             }
 
-            // Build suggestions for new argument
-            for (String tabCompletion : target.tabComplete(sender, commandLabel, arguments, location)) {
-                builder.suggest(tabCompletion);
+            CompletionKey cacheKey = key;
+            if (asyncExecutor != null) {
+                return supplyAsync(() -> {
+                    completeCommandNames(index, sender, command, cacheKey).forEach(builder::suggest);
+                    return builder.build();
+                });
             }
 
-            // Flag handling logic
-            for (String str : command.split(" ")) {
-                if (str.startsWith("-")) {
-                    Set<Character> usedCharFlags = new HashSet<>();
-                    Set<String> usedWordFlagSet = new HashSet<>();
-                    for (String part : info.currentInput().split("\\s+")) {
-                        if (part.startsWith("--") && part.length() > 2) {
-                            usedWordFlagSet.add(part.substring(2));
-                        } else if (part.startsWith("-") && part.length() > 1) {
-                            for (char c : part.substring(1).toCharArray()) {
-                                usedCharFlags.add(c);
-                            }
-                        }
-                    }
+            completeCommandNames(index, sender, command, cacheKey).forEach(builder::suggest);
+            return builder.buildFuture();
+        }
 
-                    List<Character> unusedCharFlags = allFlags.stream()
-                            .filter(f -> !usedCharFlags.contains(f))
-                            .toList();
-                    List<String> unusedWordFlags = wordFlags.stream()
-                            .filter(w -> !usedWordFlagSet.contains(w))
-                            .toList();
-
-                    if (!info.currentInput().endsWith(" ")) {
-                        if (str.startsWith("--")) {
-                            String partial = str.substring(2);
-                            for (String w : unusedWordFlags) {
-                                if (w.startsWith(partial)) builder.suggest("--" + w);
-                            }
-                        } else {
-                            for (Character f : unusedCharFlags) {
-                                String clean = str.substring(1);
-                                builder.suggest("-" + clean + f);
-                            }
-                        }
-                    } else {
-                        for (Character f : unusedCharFlags) {
-                            builder.suggest("-" + f);
-                        }
-                        for (String w : unusedWordFlags) {
-                            builder.suggest("--" + w);
-                        }
-                    }
-                }
+        // Tokenize once, the spans are shared by the label lookup, the delegate and flag handling
+        InputTokens tokens = InputTokens.split(command, ' ');
+
+        // Verify commandLabel
+        String commandLabel = tokens.count() == 0 ? "" : tokens.get(0);
+        Command target = index.getCommand(commandLabel);
+        if (target == null) {
+            throw CommandSyntaxException.BUILT_IN_EXCEPTIONS.dispatcherUnknownCommand().createWithContext(context);
+        }
+
+        // Get arguments, without the command name, for normal tab-completion
+        // If command ends with space add an empty argument
+        boolean trailingArgument = !tokens.isEmpty(0) && command.endsWith(" ");
+        String[] targetArguments = new String[tokens.count() - 1 + (trailingArgument ? 1 : 0)];
+        for (int i = 1; i < tokens.count(); i++) {
+            targetArguments[i - 1] = tokens.get(i);
+        }
+        if (trailingArgument) targetArguments[targetArguments.length - 1] = "";
+
+        // Build suggestion
+        SuggestionsBuilder offsetBuilder = builder.createOffset(builder.getStart() + command.lastIndexOf(" ") + 1);
+
+        String[] previousArguments = new String[targetArguments.length];
+        previousArguments[0] = commandLabel;
+        System.arraycopy(targetArguments, 0, previousArguments, 1, targetArguments.length - 1);
+        ArgumentSuggestions<CommandSender> replacement = replacements.getNextSuggestion(sender, previousArguments);
+        if (replacement != null) {
+            return replacement.suggest(new SuggestionInfo<>(sender, new CommandArguments(previousArguments, new LinkedHashMap<>(), previousArguments, new LinkedHashMap<>(), info.currentInput()), command, targetArguments[targetArguments.length - 1]), offsetBuilder);
+        }
+
+        // Used flags are resolved once, incrementally, on the calling thread
+        String currentInput = info.currentInput();
+        FlagCompleter.State used = completer.usedFlags(sender, currentInput);
+        boolean endsWithSpace = currentInput.endsWith(" ");
+        if (used.inValue()) return completer.suggestValue(info, used, builder);
+
+        // Get location sender is looking at if they are a Player, matching vanilla behavior
+        // The ray trace is only needed, and only safe, on the main thread for commands that use it
+        Location location = null;
+        if (sender instanceof Player player && USES_LOCATION.get(target.getClass())) {
+            Block block = player.getTargetBlockExact(5, FluidCollisionMode.NEVER);
+            if (block != null) {
+                location = block.getLocation();
             }
-            return builder.buildFuture();
-        });
+        }
+
+        Location targetLocation = location;
+        if (asyncExecutor != null) {
+            // The sender's next keystroke folds into the live state while the worker reads it
+            FlagCompleter.State usedCopy = used.copy();
+            return supplyAsync(() -> {
+                suggestNested(sender, target, commandLabel, targetArguments, targetLocation, command, tokens, usedCopy, endsWithSpace, offsetBuilder);
+                return offsetBuilder.build();
+            });
+        }
+
+        suggestNested(sender, target, commandLabel, targetArguments, targetLocation, command, tokens, used, endsWithSpace, offsetBuilder);
+        return offsetBuilder.buildFuture();
     }
 
-    public CommandFlagArgument(String nodeName, Set<Character> flags) {
-        this(nodeName, flags, Set.of(), Set.of());
+    private CompletableFuture<Suggestions> supplyAsync(Supplier<Suggestions> task) {
+        // Skipped when a throttle supersedes the request before it starts
+        return BookshelfExecutors.supply(task, asyncExecutor, Suggestions.empty().join());
     }
 
-    public CommandFlagArgument(String nodeName, Set<Character> flags, Set<Character> valueFlags) {
-        this(nodeName, flags, valueFlags, Set.of());
+    private List<String> completeCommandNames(CommandIndex index, CommandSender sender, String command, CompletionKey cacheKey) {
+        // Unlike the command map, the index leaves out the / prefixed for players
+        List<String> names = index.complete(sender, command);
+        if (cacheKey != null) commandNameCache.put(cacheKey, names);
+        return names;
+    }
+
+    private void suggestNested(CommandSender sender, Command target, String commandLabel, String[] arguments, Location location,
+                               String command, InputTokens tokens, FlagCompleter.State used, boolean endsWithSpace,
+                               SuggestionsBuilder builder) {
+        // Build suggestions for new argument
+        for (String tabCompletion : target.tabComplete(sender, commandLabel, arguments, location)) {
+            builder.suggest(tabCompletion);
+        }
+
+        // Flag handling logic
+        char[] flags = spec.flags();
+        PrefixIndex words = spec.words();
+        boolean suggestedAll = false;
+        for (int i = 0; i < tokens.count(); i++) {
+            if (!tokens.startsWith(i, '-')) continue;
+            int start = tokens.start(i);
+            int end = tokens.end(i);
+
+            if (!endsWithSpace) {
+                if (end - start > 1 && command.charAt(start + 1) == '-') {
+                    completer.suggestWords(command, start + 2, end, used, builder);
+                } else {
+                    String token = tokens.get(i);
+                    for (char flag : flags) {
+                        if (!used.hasFlag(flag)) builder.suggest(token + flag);
+                    }
+                }
+            } else if (!suggestedAll) {
+                // Every flag token yields the same suggestions here, so only emit them once
+                suggestedAll = true;
+                for (char flag : flags) {
+                    if (!used.hasFlag(flag)) builder.suggest("-" + flag);
+                }
+                for (int id = 0; id < words.size(); id++) {
+                    if (!used.hasWord(id)) builder.suggest("--" + words.get(id));
+                }
+            }
+        }
+    }
+
+    private record CompletionKey(long permissions, long registry, String prefix) {
     }
 }
@@ -1,14 +1,48 @@
 package gg.lode.bookshelfcmd.argument;
 
-import dev.jorel.commandapi.arguments.GreedyStringArgument;
+import com.mojang.brigadier.arguments.StringArgumentType;
+import com.mojang.brigadier.context.CommandContext;
+import com.mojang.brigadier.exceptions.CommandSyntaxException;
+import dev.jorel.commandapi.arguments.Argument;
+import dev.jorel.commandapi.arguments.ArgumentSuggestions;
+import dev.jorel.commandapi.arguments.CommandAPIArgumentType;
+import dev.jorel.commandapi.arguments.GreedyArgument;
+import dev.jorel.commandapi.executors.CommandArguments;
+import gg.lode.bookshelfcmd.util.CommandMetrics;
+import gg.lode.bookshelfcmd.util.FuzzyMatcher;
+import gg.lode.bookshelfcmd.util.PrefixIndex;
+import gg.lode.bookshelfcmd.util.SuggestionThrottle;
+import org.bukkit.command.CommandSender;
 
 import java.util.*;
 
-public class FlagArgument extends GreedyStringArgument {
+/**
+ * A greedy argument that parses its flags once, while Brigadier resolves the arguments.
+ * <p>
+ * The executor receives a ready {@link ParsedFlags} instead of the raw string. The sanitized
+ * positional remainder is available through {@link ParsedFlags#getRemainder()}, and the raw
+ * input through {@link ParsedFlags#getInput()}.
+ * <p>
+ * Example:
+ * <pre>{@code
+ * new CommandAPICommand("ban")
+ *     .withArguments(new FlagArgument("flags", Set.of('s'), Set.of('d'), Set.of("silent")))
+ *     .executes((sender, args) -> {
+ *         FlagArgument.ParsedFlags flags = (FlagArgument.ParsedFlags) args.get("flags");
+ *         String target = flags.getRemainder();
+ *         String duration = flags.getFlagValue('d', "duration");
+ *     });
+ * }</pre>
+ */
+public class FlagArgument extends Argument<FlagArgument.ParsedFlags> implements GreedyArgument {
 
     protected final Set<Character> allFlags; // e.g., "dse" means "-d", "-s", "-e" are valid flags
     protected final Set<Character> valueFlags; // e.g., "d" means "-d" expects a value
     protected final Set<String> wordFlags; // e.g., "skip" means "--skip" is a valid boolean flag
+    protected FlagSpec spec; // compiled once from the sets above, replaced when converters are added, shared with the completer
+    final FlagCompleter completer;
+    private ArgumentSuggestions<CommandSender> suggestions;
+    private SuggestionThrottle throttle; // null when every request is served
 
     public FlagArgument(String nodeName, Set<Character> flags) {
         this(nodeName, flags, new HashSet<>(), new HashSet<>());
@@ -19,63 +53,159 @@ public class FlagArgument extends GreedyStringArgument {
     }
 
     public FlagArgument(String nodeName, Set<Character> flags, Set<Character> valueFlags, Set<String> wordFlags) {
-        super(nodeName);
+        this(nodeName, flags, valueFlags, wordFlags, Set.of());
+    }
+
+    /**
+     * @param nodeName       The node name
+     * @param flags          Single-char boolean flags, e.g. Set.of('s')
+     * @param valueFlags     Single-char flags that expect a value, e.g. Set.of('d')
+     * @param wordFlags      Word flags (without --), e.g. Set.of("silent")
+     * @param wordValueFlags Word flags that expect a value, e.g. Set.of("duration")
+     */
+    public FlagArgument(String nodeName, Set<Character> flags, Set<Character> valueFlags, Set<String> wordFlags, Set<String> wordValueFlags) {
+        super(nodeName, StringArgumentType.greedyString());
         this.valueFlags = valueFlags;
         this.allFlags = new HashSet<>(flags);
         this.allFlags.addAll(valueFlags);
         this.wordFlags = new HashSet<>(wordFlags);
+        this.spec = FlagSpec.of(this.allFlags, valueFlags, this.wordFlags, wordValueFlags);
+        this.completer = new FlagCompleter(spec);
 
-        replaceSuggestions((info, builder) -> {
-            String fullInput = info.currentInput().trim();
-            String currentArg = info.currentArg();
-            boolean endsWithSpace = info.currentInput().endsWith(" ");
-
-            // Collect used single-char flags
-            Set<Character> usedFlags = new HashSet<>();
-            Set<String> usedWordFlags = new HashSet<>();
-            for (String part : fullInput.split("\\s+")) {
-                if (part.startsWith("--") && part.length() > 2) {
-                    usedWordFlags.add(part.substring(2));
-                } else if (part.startsWith("-") && part.length() > 1) {
-                    for (char c : part.substring(1).toCharArray()) {
-                        usedFlags.add(c);
-                    }
-                }
-            }
+        setSuggestions(completer::suggest);
+    }
 
-            List<Character> unusedCharFlags = allFlags.stream()
-                    .filter(f -> !usedFlags.contains(f))
-                    .toList();
-
-            List<String> unusedWordFlags = this.wordFlags.stream()
-                    .filter(w -> !usedWordFlags.contains(w))
-                    .toList();
-
-            if (!endsWithSpace) {
-                if (currentArg.startsWith("--")) {
-                    String partial = currentArg.substring(2);
-                    for (String w : unusedWordFlags) {
-                        if (w.startsWith(partial)) {
-                            builder.suggest("--" + w);
-                        }
-                    }
-                } else if (currentArg.startsWith("-")) {
-                    String clean = currentArg.substring(1);
-                    for (Character f : unusedCharFlags) {
-                        builder.suggest("-" + clean + f);
-                    }
-                }
-            } else {
-                for (Character f : unusedCharFlags) {
-                    builder.suggest(currentArg + "-" + f);
-                }
-                for (String w : unusedWordFlags) {
-                    builder.suggest(currentArg + "--" + w);
-                }
-            }
+    /**
+     * Coalesce suggestion requests per sender with the {@link SuggestionThrottle#shared() shared} throttle.
+     *
+     * @return This argument for chaining
+     */
+    public FlagArgument withThrottle() {
+        return withThrottle(SuggestionThrottle.shared());
+    }
+
+    /**
+     * Coalesce suggestion requests per sender, so a client typing quickly or spamming
+     * requests only has its latest request served.
+     *
+     * @param throttle The throttle to use, or null to serve every request
+     * @return This argument for chaining
+     */
+    public FlagArgument withThrottle(SuggestionThrottle throttle) {
+        this.throttle = throttle;
+        setSuggestions(suggestions);
+        return this;
+    }
+
+    /**
+     * Convert the values of a value flag while parsing. Invalid values fail the command with
+     * the cursor at the offending character, and the executor reads converted values with
+     * {@link ParsedFlags#getFlagValue(char, Class)}.
+     *
+     * @param flag      The value flag
+     * @param converter The converter, e.g. {@link FlagConverter#duration()}
+     * @return This argument for chaining
+     * @throws IllegalArgumentException If the flag was not declared as a value flag
+     */
+    public FlagArgument withConverter(char flag, FlagConverter<?> converter) {
+        useSpec(spec.withConverter(flag, converter));
+        return this;
+    }
+
+    /**
+     * Convert the values of a word value flag while parsing.
+     *
+     * @param word      The word value flag (without --)
+     * @param converter The converter, e.g. {@link FlagConverter#integer(int, int)}
+     * @return This argument for chaining
+     * @throws IllegalArgumentException If the word was not declared as a word value flag
+     * @see #withConverter(char, FlagConverter)
+     */
+    public FlagArgument withConverter(String word, FlagConverter<?> converter) {
+        useSpec(spec.withConverter(word, converter));
+        return this;
+    }
+
+    // Parsing and completion read the same spec, converters keep its flags and word ids
+    private void useSpec(FlagSpec spec) {
+        this.spec = spec;
+        completer.setSpec(spec);
+    }
+
+    /**
+     * Suggest values after a value flag, instead of more flags, while the cursor is in its value
+     * position, e.g. right after {@code -d }. Without value suggestions, nothing is suggested there.
+     *
+     * @param flag        The value flag
+     * @param suggestions The value suggestions, e.g. {@code ValueSuggestions.of("1h", "1d", "7d")}
+     * @return This argument for chaining
+     * @throws IllegalArgumentException If the flag was not declared as a value flag
+     */
+    public FlagArgument withValueSuggestions(char flag, ValueSuggestions suggestions) {
+        completer.setValueSuggestions(flag, suggestions);
+        return this;
+    }
+
+    /**
+     * Suggest values after a word value flag, e.g. right after {@code --duration }.
+     *
+     * @param word        The word value flag (without --)
+     * @param suggestions The value suggestions
+     * @return This argument for chaining
+     * @throws IllegalArgumentException If the word was not declared as a word value flag
+     * @see #withValueSuggestions(char, ValueSuggestions)
+     */
+    public FlagArgument withValueSuggestions(String word, ValueSuggestions suggestions) {
+        completer.setValueSuggestions(word, suggestions);
+        return this;
+    }
+
+    /**
+     * Suggest word flags by fuzzy matching, so {@code --drn} also suggests {@code --dry-run}.
+     * The best matches are ranked by {@link FuzzyMatcher}.
+     *
+     * @return This argument for chaining
+     */
+    public FlagArgument withFuzzyWordFlags() {
+        completer.enableFuzzyWords();
+        return this;
+    }
+
+    /**
+     * Replace the suggestions of this argument, keeping its metrics and throttling.
+     *
+     * @param suggestions The suggestion provider
+     */
+    protected void setSuggestions(ArgumentSuggestions<CommandSender> suggestions) {
+        this.suggestions = suggestions;
+        // Time only the provider itself, the ticks a throttle defers a request for are not its latency
+        ArgumentSuggestions<CommandSender> timed = CommandMetrics.timed(getNodeName(), suggestions);
+        replaceSuggestions(throttle == null ? timed : throttle.wrap(timed));
+    }
 
-            return builder.buildFuture();
-        });
+    @Override
+    public Class<ParsedFlags> getPrimitiveType() {
+        return ParsedFlags.class;
+    }
+
+    @Override
+    public CommandAPIArgumentType getArgumentType() {
+        return CommandAPIArgumentType.PRIMITIVE_STRING;
+    }
+
+    @Override
+    public <Source> ParsedFlags parseArgument(CommandContext<Source> cmdCtx, String key, CommandArguments previousArgs) throws CommandSyntaxException {
+        String flags = cmdCtx.getArgument(key, String.class);
+        try {
+            return spec.parseStrict(flags);
+        } catch (CommandSyntaxException e) {
+            // Only errors positioned in this argument's own input are moved, others already point at theirs
+            if (e.getInput() == null || e.getCursor() < 0 || !flags.equals(e.getInput())) throw e;
+            // Converters only see this argument, move the cursor to the full input. Greedy arguments end it.
+            String input = cmdCtx.getInput();
+            int offset = input.length() - flags.length();
+            throw new CommandSyntaxException(e.getType(), e.getRawMessage(), input, offset + e.getCursor());
+        }
     }
 
     /**
@@ -98,27 +228,7 @@ public class FlagArgument extends GreedyStringArgument {
      * @return true if all flags are present, false otherwise
      */
     public static boolean hasFlags(String input, String flagSet) {
-        if (flagSet == null || flagSet.isEmpty() || input == null) return false;
-
-        // Parse flags (does not consider value flags, just presence)
-        Set<Character> presentFlags = new HashSet<>();
-        String[] parts = input.trim().split("\\s+");
-
-        for (String part : parts) {
-            if (part.startsWith("-") && part.length() > 1 && !part.startsWith("--") && !part.matches("-\\d+")) {
-                String chunk = part.substring(1);
-                for (char c : chunk.toCharArray()) {
-                    presentFlags.add(c);
-                }
-            }
-        }
-
-        // Check each required flag
-        for (char c : flagSet.toCharArray()) {
-            if (!presentFlags.contains(c)) return false;
-        }
-
-        return true;
+        return FlagSpec.containsFlags(input, flagSet);
     }
 
     /**
@@ -129,12 +239,7 @@ public class FlagArgument extends GreedyStringArgument {
      * @return true if --word is present, false otherwise
      */
     public static boolean hasWordFlag(String input, String word) {
-        if (input == null || word == null || word.isEmpty()) return false;
-        String target = "--" + word;
-        for (String part : input.trim().split("\\s+")) {
-            if (part.equals(target)) return true;
-        }
-        return false;
+        return FlagSpec.containsWordFlag(input, word);
     }
 
     /**
@@ -160,46 +265,7 @@ public class FlagArgument extends GreedyStringArgument {
      * @return ParsedFlags containing active flags, assigned values, and active word flags
      */
     public static ParsedFlags parseFlags(String input, Set<Character> flagsWithValue, Set<String> wordFlagsWithValue) {
-        ParsedFlags parsed = new ParsedFlags();
-        if (input == null || input.isEmpty()) return parsed;
-
-        String[] args = input.trim().split("\\s+");
-
-        for (int i = 0; i < args.length; i++) {
-            String arg = args[i];
-
-            if (!arg.startsWith("-") || arg.length() < 2) continue;
-
-            // Word flag: --skip or --duration 7d
-            if (arg.startsWith("--")) {
-                String word = arg.substring(2);
-                parsed.activeWordFlags.add(word);
-                if (wordFlagsWithValue.contains(word) && i + 1 < args.length && !args[i + 1].startsWith("-")) {
-                    parsed.wordFlagValues.put(word, args[++i]);
-                }
-                continue;
-            }
-
-            if (arg.matches("-\\d+")) continue;
-
-            String chunk = arg.substring(1);
-
-            for (int j = 0; j < chunk.length(); j++) {
-                char flag = chunk.charAt(j);
-                parsed.activeFlags.add(flag);
-
-                boolean isLastInChunk = j == chunk.length() - 1;
-                boolean expectsValue = flagsWithValue.contains(flag);
-
-                if (expectsValue && isLastInChunk && i + 1 < args.length && !args[i + 1].startsWith("-")) {
-                    parsed.flagValues.put(flag, args[++i]); // store and skip value
-                } else if (expectsValue && isLastInChunk) {
-                    parsed.flagValues.put(flag, null); // no value supplied
-                }
-            }
-        }
-
-        return parsed;
+        return FlagSpec.legacy(flagsWithValue, Set.of(), wordFlagsWithValue).parse(input);
     }
 
     /**
@@ -235,56 +301,86 @@ public class FlagArgument extends GreedyStringArgument {
      * @return A sanitized string with only non-flag arguments
      */
     public static String sanitizeInput(String input, Set<Character> flagsWithValue, Set<String> wordFlagsToStrip, Set<String> wordFlagsWithValue) {
-        if (input == null || input.isEmpty()) return "";
-
-        String[] args = input.trim().split("\\s+");
-        List<String> result = new ArrayList<>();
-
-        for (int i = 0; i < args.length; i++) {
-            String arg = args[i];
-
-            // Word flag: --skip, --force, --duration 7d, etc.
-            if (arg.startsWith("--") && arg.length() > 2) {
-                String word = arg.substring(2);
-                if (wordFlagsToStrip.isEmpty() || wordFlagsToStrip.contains(word)) {
-                    // Also skip the value token if this word flag expects one
-                    if (wordFlagsWithValue.contains(word) && i + 1 < args.length && !args[i + 1].startsWith("-")) {
-                        i++;
-                    }
-                    continue; // strip it
-                }
-                result.add(arg);
-                continue;
-            }
+        return FlagSpec.legacy(flagsWithValue, wordFlagsToStrip, wordFlagsWithValue).sanitize(input);
+    }
 
-            // Detect single-char flag tokens like "-a" or "-bc", but not negative numbers "-123"
-            if (arg.startsWith("-") && arg.length() > 1 && !arg.matches("-\\d+")) {
-                String chunk = arg.substring(1);
-
-                // If the last flag in this group expects a value, skip the next token
-                char lastFlag = chunk.charAt(chunk.length() - 1);
-                if (flagsWithValue.contains(lastFlag) && i + 1 < args.length
-                        && !args[i + 1].startsWith("-")) {
-                    i++; // skip the value token
-                }
-                // skip this flag token
-            } else {
-                // normal argument or negative number
-                result.add(arg);
-            }
-        }
+    /**
+     * Parses flags from the input using this argument's compiled {@link FlagSpec}.
+     *
+     * @param input The flag input, e.g. "-sd 20 --skip"
+     * @return ParsedFlags containing active flags, assigned values, and active word flags
+     */
+    public ParsedFlags parse(String input) {
+        return spec.parse(input);
+    }
+
+    /**
+     * Removes this argument's flags, their values and its word flags from the input.
+     *
+     * @param input The flag input, e.g. "hello -d 20 world --skip"
+     * @return A sanitized string with only non-flag arguments, e.g. "hello world"
+     */
+    public String sanitize(String input) {
+        return spec.sanitize(input);
+    }
+
+    public FlagSpec getSpec() {
+        return spec;
+    }
 
-        return String.join(" ", result);
+    /**
+     * Drops the incremental completion state kept for a sender.
+     * Called automatically when a player quits once a {@link gg.lode.bookshelfcmd.BookshelfCommand} is registered.
+     *
+     * @param sender The sender whose state should be dropped
+     */
+    public static void clearCompletionState(CommandSender sender) {
+        FlagCompleter.evict(sender);
     }
 
+    /**
+     * The flags found in one input, backed by primitive bitsets and offsets into the input.
+     * <p>
+     * Single-char flags live in a 128-bit ASCII mask, word flags are tracked by the id their
+     * {@link FlagSpec} interned them to, and values are stored as spans of the original input.
+     * Strings are only materialized when a value is requested.
+     */
     public static class ParsedFlags {
-        private final Set<Character> activeFlags = new HashSet<>();
-        private final Map<Character, String> flagValues = new HashMap<>();
-        private final Set<String> activeWordFlags = new HashSet<>();
-        private final Map<String, String> wordFlagValues = new HashMap<>();
+        private static final int[] NO_SPANS = new int[0];
+
+        private final FlagSpec spec;
+        private final CharSequence input;
+
+        private long flagsLow; // active ASCII flags 0-63
+        private long flagsHigh; // active ASCII flags 64-127
+        private char[] extraFlags; // active non-ASCII flags, allocated on demand
+        private int extraFlagCount;
+
+        private int[] flagValueSpans = NO_SPANS; // [start, end) per value flag slot, -1 start when absent
+        private long[] wordBits; // active word ids, allocated on demand
+        private int[] wordValueSpans = NO_SPANS; // [start, end) per word id, -1 start when absent
+        private Object[] convertedFlagValues; // per value flag slot, allocated on demand
+        private Object[] convertedWordValues; // per word id, allocated on demand
+        private int[] unknownWordSpans = NO_SPANS; // [start, end) of word flags the spec does not declare
+        private int unknownWordCount;
+        private String remainder; // sanitized on first request
+
+        public ParsedFlags() {
+            this(FlagSpec.EMPTY, "");
+        }
+
+        ParsedFlags(FlagSpec spec, CharSequence input) {
+            this.spec = spec;
+            this.input = input;
+        }
 
         public boolean hasFlag(char flag) {
-            return activeFlags.contains(flag) || flagValues.containsKey(flag);
+            if (flag < 64) return (flagsLow & (1L << flag)) != 0;
+            if (flag < 128) return (flagsHigh & (1L << (flag - 64))) != 0;
+            for (int i = 0; i < extraFlagCount; i++) {
+                if (extraFlags[i] == flag) return true;
+            }
+            return false;
         }
 
         public boolean hasFlag(char shortFlag, String longFlag) {
@@ -292,7 +388,9 @@ public class FlagArgument extends GreedyStringArgument {
         }
 
         public String getFlagValue(char flag) {
-            return flagValues.get(flag);
+            int slot = spec.valueSlot(flag);
+            if (slot < 0 || slot * 2 >= flagValueSpans.length) return null;
+            return span(flagValueSpans, slot);
         }
 
         public String getFlagValue(char shortFlag, String longFlag) {
@@ -300,12 +398,123 @@ public class FlagArgument extends GreedyStringArgument {
             return val != null ? val : getWordFlagValue(longFlag);
         }
 
+        /**
+         * @param flag The value flag
+         * @param type The type its {@link FlagConverter} produces
+         * @return The converted value, or null if the flag has no value or no converter
+         */
+        public <T> T getFlagValue(char flag, Class<T> type) {
+            int slot = spec.valueSlot(flag);
+            if (slot < 0 || convertedFlagValues == null) return null;
+            return type.cast(convertedFlagValues[slot]);
+        }
+
+        public <T> T getFlagValue(char shortFlag, String longFlag, Class<T> type) {
+            T val = getFlagValue(shortFlag, type);
+            return val != null ? val : getWordFlagValue(longFlag, type);
+        }
+
         public boolean hasWordFlag(String word) {
-            return activeWordFlags.contains(word);
+            if (word == null) return false;
+            int id = spec.indexOfWord(word, 0, word.length());
+            if (id >= 0) return wordBits != null && (wordBits[id >>> 6] & (1L << id)) != 0;
+            for (int i = 0; i < unknownWordCount; i++) {
+                if (PrefixIndex.compare(word, input, unknownWordSpans[i * 2], unknownWordSpans[i * 2 + 1]) == 0) return true;
+            }
+            return false;
         }
 
         public String getWordFlagValue(String word) {
-            return wordFlagValues.get(word);
+            if (word == null) return null;
+            int id = spec.indexOfWord(word, 0, word.length());
+            if (id < 0 || id * 2 >= wordValueSpans.length) return null;
+            return span(wordValueSpans, id);
+        }
+
+        /**
+         * @param word The word value flag (without --)
+         * @param type The type its {@link FlagConverter} produces
+         * @return The converted value, or null if the flag has no value or no converter
+         */
+        public <T> T getWordFlagValue(String word, Class<T> type) {
+            if (word == null || convertedWordValues == null) return null;
+            int id = spec.indexOfWord(word, 0, word.length());
+            return id < 0 ? null : type.cast(convertedWordValues[id]);
+        }
+
+        /**
+         * @return The raw input these flags were parsed from
+         */
+        public String getInput() {
+            return input.toString();
+        }
+
+        /**
+         * @return The input with all flags, word flags and their values removed, e.g. "hello world"
+         */
+        public String getRemainder() {
+            if (remainder == null) remainder = spec.sanitize(input);
+            return remainder;
+        }
+
+        private String span(int[] spans, int slot) {
+            int start = spans[slot * 2];
+            return start < 0 ? null : input.subSequence(start, spans[slot * 2 + 1]).toString();
+        }
+
+        void addFlag(char flag) {
+            if (flag < 64) {
+                flagsLow |= 1L << flag;
+            } else if (flag < 128) {
+                flagsHigh |= 1L << (flag - 64);
+            } else if (!hasFlag(flag)) {
+                if (extraFlags == null) extraFlags = new char[4];
+                else if (extraFlagCount == extraFlags.length) extraFlags = Arrays.copyOf(extraFlags, extraFlagCount * 2);
+                extraFlags[extraFlagCount++] = flag;
+            }
+        }
+
+        void putFlagValue(int slot, int start, int end) {
+            if (flagValueSpans == NO_SPANS) {
+                flagValueSpans = new int[spec.valueFlagCount() * 2];
+                Arrays.fill(flagValueSpans, -1);
+            }
+            flagValueSpans[slot * 2] = start;
+            flagValueSpans[slot * 2 + 1] = end;
+            if (convertedFlagValues != null) convertedFlagValues[slot] = null;
+        }
+
+        void putConvertedFlagValue(int slot, Object value) {
+            if (convertedFlagValues == null) convertedFlagValues = new Object[spec.valueFlagCount()];
+            convertedFlagValues[slot] = value;
+        }
+
+        void putConvertedWordFlagValue(int id, Object value) {
+            if (convertedWordValues == null) convertedWordValues = new Object[spec.wordCount()];
+            convertedWordValues[id] = value;
+        }
+
+        void addWordFlag(int id) {
+            if (wordBits == null) wordBits = new long[(spec.wordCount() + 63) >>> 6];
+            wordBits[id >>> 6] |= 1L << id;
+        }
+
+        void addUnknownWordFlag(int start, int end) {
+            if (unknownWordSpans == NO_SPANS) unknownWordSpans = new int[8];
+            else if (unknownWordCount * 2 == unknownWordSpans.length) unknownWordSpans = Arrays.copyOf(unknownWordSpans, unknownWordSpans.length * 2);
+            unknownWordSpans[unknownWordCount * 2] = start;
+            unknownWordSpans[unknownWordCount * 2 + 1] = end;
+            unknownWordCount++;
+        }
+
+        void putWordFlagValue(int id, int start, int end) {
+            if (wordValueSpans == NO_SPANS) {
+                wordValueSpans = new int[spec.wordCount() * 2];
+                Arrays.fill(wordValueSpans, -1);
+            }
+            wordValueSpans[id * 2] = start;
+            wordValueSpans[id * 2 + 1] = end;
+            if (convertedWordValues != null) convertedWordValues[id] = null;
         }
     }
 }
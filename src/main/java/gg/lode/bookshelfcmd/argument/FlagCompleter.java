@@ -0,0 +1,295 @@
+package gg.lode.bookshelfcmd.argument;
+
+import com.mojang.brigadier.exceptions.CommandSyntaxException;
+import com.mojang.brigadier.suggestion.Suggestions;
+import com.mojang.brigadier.suggestion.SuggestionsBuilder;
+import dev.jorel.commandapi.SuggestionInfo;
+import gg.lode.bookshelfcmd.util.FuzzyMatcher;
+import gg.lode.bookshelfcmd.util.PrefixIndex;
+import org.bukkit.command.CommandSender;
+import org.bukkit.entity.Player;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Incremental flag completion for a {@link FlagSpec}.
+ * <p>
+ * Clients request suggestions on every keystroke, and consecutive requests from the same sender
+ * usually extend the previous input by one character. Each sender keeps a small tokenizer state
+ * holding the flags used by every whitespace-terminated token seen so far. A request that extends
+ * that prefix only scans the new tail, so the work per keystroke does not grow with the input.
+ * The state is reset as soon as the input diverges, and dropped when the sender disconnects.
+ * <p>
+ * The same pass tracks whether the last token was a value flag still owed its value, so a
+ * cursor in that value's position gets the flag's {@link ValueSuggestions} instead of flags.
+ */
+final class FlagCompleter {
+
+    // One state per sender, since a sender only completes one command at a time
+    private static final Map<CommandSender, State> STATES = Collections.synchronizedMap(new WeakHashMap<>());
+
+    private FlagSpec spec; // the owning argument's spec, replaced along with it
+    private FuzzyMatcher fuzzyWords; // null when word flags are matched by prefix
+    private ValueSuggestions[] flagValues; // by value slot, null when there are none
+    private ValueSuggestions[] wordValues; // by word id, null when there are none
+
+    FlagCompleter(FlagSpec spec) {
+        this.spec = spec;
+    }
+
+    /**
+     * Use a spec with converters added, which keeps the flags and word ids of the current one.
+     */
+    void setSpec(FlagSpec spec) {
+        this.spec = spec;
+    }
+
+    /**
+     * Rank word flags by fuzzy matching instead of requiring the typed prefix.
+     */
+    void enableFuzzyWords() {
+        fuzzyWords = FuzzyMatcher.of(spec.words());
+    }
+
+    void setValueSuggestions(char flag, ValueSuggestions suggestions) {
+        int slot = spec.valueSlot(flag);
+        if (slot < 0) throw new IllegalArgumentException("-" + flag + " is not a value flag");
+        if (flagValues == null) flagValues = new ValueSuggestions[spec.valueFlagCount()];
+        flagValues[slot] = suggestions;
+    }
+
+    void setValueSuggestions(String word, ValueSuggestions suggestions) {
+        int id = spec.indexOfWord(word, 0, word.length());
+        if (id < 0 || !spec.isValueWord(id)) throw new IllegalArgumentException("--" + word + " is not a word value flag");
+        if (wordValues == null) wordValues = new ValueSuggestions[spec.wordCount()];
+        wordValues[id] = suggestions;
+    }
+
+    /**
+     * Drops the completion state of a sender, e.g. when they disconnect.
+     *
+     * @param sender The sender to forget
+     */
+    static void evict(CommandSender sender) {
+        STATES.remove(sender);
+    }
+
+    CompletableFuture<Suggestions> suggest(SuggestionInfo<CommandSender> info, SuggestionsBuilder builder) throws CommandSyntaxException {
+        String input = info.currentInput();
+        String currentArg = info.currentArg();
+        State used = usedFlags(info.sender(), input);
+        if (used.inValue()) return suggestValue(info, used, builder);
+
+        if (!input.endsWith(" ")) {
+            if (currentArg.startsWith("--")) {
+                suggestWords(currentArg, 2, currentArg.length(), used, builder);
+            } else if (currentArg.startsWith("-")) {
+                for (char flag : spec.flags()) {
+                    if (!used.hasFlag(flag)) builder.suggest(currentArg + flag);
+                }
+            }
+        } else {
+            for (char flag : spec.flags()) {
+                if (!used.hasFlag(flag)) builder.suggest(currentArg + "-" + flag);
+            }
+            PrefixIndex words = spec.words();
+            for (int id = 0; id < words.size(); id++) {
+                if (!used.hasWord(id)) builder.suggest(currentArg + "--" + words.get(id));
+            }
+        }
+
+        return builder.buildFuture();
+    }
+
+    /**
+     * Suggest the value of the flag owning the value position under the cursor.
+     *
+     * @param used The state returned by {@link #usedFlags(CommandSender, String)}, in a value position
+     * @return The flag's value suggestions, or none if it has no suggestions
+     */
+    CompletableFuture<Suggestions> suggestValue(SuggestionInfo<CommandSender> info, State used, SuggestionsBuilder builder) throws CommandSyntaxException {
+        ValueSuggestions values = used.valueSlot >= 0
+                ? (flagValues == null ? null : flagValues[used.valueSlot])
+                : (wordValues == null ? null : wordValues[used.valueWord]);
+        if (values == null) return builder.buildFuture();
+
+        // Both inputs end at the cursor, so the value starts the same distance before their ends
+        String input = info.currentInput();
+        SuggestionsBuilder valueBuilder = builder.createOffset(builder.getInput().length() - (input.length() - used.valueStart));
+        return values.suggest(new SuggestionInfo<>(info.sender(), info.previousArgs(), input, input.substring(used.valueStart)), valueBuilder);
+    }
+
+    /**
+     * Suggest the unused word flags matching a typed word.
+     *
+     * @param input The input holding the typed word
+     * @param from  Start of the word, after the leading {@code --}
+     * @param to    End of the word
+     * @param used  The flags already used
+     */
+    void suggestWords(CharSequence input, int from, int to, State used, SuggestionsBuilder builder) {
+        PrefixIndex words = spec.words();
+        if (fuzzyWords != null) {
+            // Word ids are positions in the sorted index, which the matcher keeps
+            for (int id : fuzzyWords.top(input.subSequence(from, to), words.size(), id -> !used.hasWord(id))) {
+                builder.suggest("--" + words.get(id));
+            }
+            return;
+        }
+
+        // Matching words are contiguous in the sorted index
+        int end = words.to(input, from, to);
+        for (int id = words.from(input, from, to); id < end; id++) {
+            if (!used.hasWord(id)) builder.suggest("--" + words.get(id));
+        }
+    }
+
+    /**
+     * Resolves the flags used anywhere in the input, resuming from the sender's previous state
+     * when the input still starts with the part that state already folded in.
+     *
+     * @return A state describing every used flag, including the token still being typed. It may be
+     * the sender's live state, so {@link State#copy()} it before handing it to another thread.
+     */
+    State usedFlags(CommandSender sender, String input) {
+        State state = STATES.get(sender);
+        if (state == null || state.completer != this || !state.continues(input)
+                || (sender instanceof Player player && !player.isOnline())) {
+            state = new State(this);
+            if (!(sender instanceof Player player) || player.isOnline()) STATES.put(sender, state);
+        }
+
+        int length = input.length();
+        int cursor = state.committed;
+        while (true) {
+            int start = FlagSpec.skipWhitespace(input, cursor, length);
+            if (start == length) break;
+            int end = FlagSpec.tokenEnd(input, start, length);
+            cursor = end;
+
+            if (end == length) {
+                // The token under the cursor may still change, fold it into a scratch copy
+                State scratch = state.copy();
+                scratch.fold(spec, input, start, end);
+                scratch.markValue(state, FlagSpec.isValue(input, start, end) ? start : -1);
+                state.input = input;
+                return scratch;
+            }
+            state.fold(spec, input, start, end);
+            state.committed = end + 1; // include the whitespace, so a longer token can't reuse this one
+        }
+
+        state.markValue(state, length);
+        state.input = input;
+        return state;
+    }
+
+    static final class State {
+        private final FlagCompleter completer;
+        private String input = "";
+        private int committed; // input[0, committed) holds only whitespace-terminated tokens folded into this state
+
+        private long flagsLow;
+        private long flagsHigh;
+        private char[] extraFlags;
+        private int extraFlagCount;
+        private long[] words;
+
+        private int pendingSlot = -1; // value flag slot owed a value by the last folded token
+        private int pendingWord = -1; // word id owed a value by the last folded token
+        private int valueStart = -1; // start of the value under the cursor, -1 when not in a value
+        private int valueSlot = -1;
+        private int valueWord = -1;
+
+        private State(FlagCompleter completer) {
+            this.completer = completer;
+        }
+
+        private boolean continues(String next) {
+            return next.length() >= committed && next.regionMatches(0, input, 0, committed);
+        }
+
+        private void fold(FlagSpec spec, String input, int start, int end) {
+            // Any token settles the value owed by the previous one, as in FlagSpec#parse
+            pendingSlot = -1;
+            pendingWord = -1;
+            if (end - start < 2 || FlagSpec.isValue(input, start, end)) return;
+
+            if (end - start > 2 && input.charAt(start + 1) == '-') {
+                int id = spec.indexOfWord(input, start + 2, end);
+                if (id >= 0) {
+                    if (words == null) words = new long[(spec.wordCount() + 63) >>> 6];
+                    words[id >>> 6] |= 1L << id;
+                    if (spec.isValueWord(id)) pendingWord = id;
+                }
+                return;
+            }
+
+            pendingSlot = spec.valueSlot(input.charAt(end - 1));
+
+            for (int i = start + 1; i < end; i++) {
+                char flag = input.charAt(i);
+                if (flag < 64) flagsLow |= 1L << flag;
+                else if (flag < 128) flagsHigh |= 1L << (flag - 64);
+                else if (!hasFlag(flag)) {
+                    if (extraFlags == null) extraFlags = new char[4];
+                    else if (extraFlagCount == extraFlags.length) extraFlags = Arrays.copyOf(extraFlags, extraFlagCount * 2);
+                    extraFlags[extraFlagCount++] = flag;
+                }
+            }
+        }
+
+        boolean hasFlag(char flag) {
+            if (flag < 64) return (flagsLow & (1L << flag)) != 0;
+            if (flag < 128) return (flagsHigh & (1L << (flag - 64))) != 0;
+            for (int i = 0; i < extraFlagCount; i++) {
+                if (extraFlags[i] == flag) return true;
+            }
+            return false;
+        }
+
+        boolean hasWord(int id) {
+            return words != null && (words[id >>> 6] & (1L << id)) != 0;
+        }
+
+        /**
+         * @return Whether the cursor is in the value position of a value flag
+         */
+        boolean inValue() {
+            return valueStart >= 0;
+        }
+
+        // The value under the cursor belongs to whatever the committed tokens of owner still owe
+        private void markValue(State owner, int start) {
+            boolean owed = owner.pendingSlot >= 0 || owner.pendingWord >= 0;
+            valueSlot = owner.pendingSlot;
+            valueWord = owner.pendingWord;
+            valueStart = owed ? start : -1;
+        }
+
+        /**
+         * @return An independent copy, for reading the state off the thread that resolved it.
+         * The sender's next request keeps updating the original.
+         */
+        State copy() {
+            State copy = new State(completer);
+            copy.input = input;
+            copy.committed = committed;
+            copy.flagsLow = flagsLow;
+            copy.flagsHigh = flagsHigh;
+            copy.extraFlags = extraFlags == null ? null : extraFlags.clone();
+            copy.extraFlagCount = extraFlagCount;
+            copy.words = words == null ? null : words.clone();
+            copy.pendingSlot = pendingSlot;
+            copy.pendingWord = pendingWord;
+            copy.valueStart = valueStart;
+            copy.valueSlot = valueSlot;
+            copy.valueWord = valueWord;
+            return copy;
+        }
+    }
+}
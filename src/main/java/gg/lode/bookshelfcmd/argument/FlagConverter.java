@@ -0,0 +1,91 @@
+package gg.lode.bookshelfcmd.argument;
+
+import com.mojang.brigadier.exceptions.CommandSyntaxException;
+import org.bukkit.entity.Player;
+
+import java.time.Duration;
+import java.util.UUID;
+
+/**
+ * Converts the value of a value flag or word value flag while the flags are parsed.
+ * <p>
+ * A converter reads its value straight from a span of the input, so values are never copied
+ * into a String just to be parsed. Conversion errors are {@link CommandSyntaxException}s with
+ * the cursor at the offending character of the value.
+ * <p>
+ * Example:
+ * <pre>{@code
+ * new FlagArgument("flags", Set.of('s'), Set.of('d'), Set.of(), Set.of("amount"))
+ *     .withConverter('d', FlagConverter.duration())
+ *     .withConverter("amount", FlagConverter.integer(1, 64));
+ * ...
+ * Duration duration = flags.getFlagValue('d', Duration.class);
+ * }</pre>
+ *
+ * @param <T> The converted type
+ */
+@FunctionalInterface
+public interface FlagConverter<T> {
+
+    /**
+     * @param input The input holding the value
+     * @param start Start of the value
+     * @param end   End of the value
+     * @return The converted value
+     * @throws CommandSyntaxException If the value is invalid, with a cursor between start and end
+     */
+    T convert(CharSequence input, int start, int end) throws CommandSyntaxException;
+
+    /**
+     * @return A converter for any 32-bit integer
+     */
+    static FlagConverter<Integer> integer() {
+        return integer(Integer.MIN_VALUE, Integer.MAX_VALUE);
+    }
+
+    /**
+     * @param min The smallest accepted value
+     * @param max The largest accepted value
+     * @return A converter for integers between min and max, inclusive
+     */
+    static FlagConverter<Integer> integer(int min, int max) {
+        return (input, start, end) -> FlagConverters.parseInt(input, start, end, min, max);
+    }
+
+    /**
+     * @return A converter for decimal numbers, e.g. {@code 2.5} or {@code -1e3}
+     */
+    static FlagConverter<Double> decimal() {
+        return FlagConverters::parseDouble;
+    }
+
+    /**
+     * @return A converter for durations made of amounts and units, e.g. {@code 7d} or
+     * {@code 1h30m}. The units are {@code ms s m h d w}, and a bare number means seconds.
+     */
+    static FlagConverter<Duration> duration() {
+        return FlagConverters::parseDuration;
+    }
+
+    /**
+     * @return A converter for UUIDs in their canonical, dashed form
+     */
+    static FlagConverter<UUID> uuid() {
+        return FlagConverters::parseUuid;
+    }
+
+    /**
+     * @return A converter for the exact name of an online player
+     */
+    static FlagConverter<Player> onlinePlayer() {
+        return FlagConverters::parsePlayer;
+    }
+
+    /**
+     * @param type The enum type
+     * @return A converter for the constants of the enum, ignoring case
+     */
+    static <E extends Enum<E>> FlagConverter<E> enumeration(Class<E> type) {
+        return FlagConverters.enumeration(type);
+    }
+}
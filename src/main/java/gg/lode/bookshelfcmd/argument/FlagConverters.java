@@ -0,0 +1,238 @@
+package gg.lode.bookshelfcmd.argument;
+
+import com.mojang.brigadier.LiteralMessage;
+import com.mojang.brigadier.StringReader;
+import com.mojang.brigadier.exceptions.CommandSyntaxException;
+import com.mojang.brigadier.exceptions.DynamicCommandExceptionType;
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+
+import java.time.Duration;
+import java.util.Locale;
+import java.util.UUID;
+
+/**
+ * The built-in {@link FlagConverter}s. Numbers, durations and UUIDs are parsed directly from
+ * the input span, so converting them allocates nothing but the result.
+ */
+final class FlagConverters {
+
+    private static final DynamicCommandExceptionType INVALID_DURATION =
+            new DynamicCommandExceptionType(value -> new LiteralMessage("Invalid duration '" + value + "', expected e.g. 7d or 1h30m"));
+    private static final DynamicCommandExceptionType INVALID_UUID =
+            new DynamicCommandExceptionType(value -> new LiteralMessage("Invalid UUID '" + value + "'"));
+    private static final DynamicCommandExceptionType UNKNOWN_PLAYER =
+            new DynamicCommandExceptionType(value -> new LiteralMessage("No online player named '" + value + "'"));
+
+    // Powers of ten that are exactly representable as doubles
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    private FlagConverters() {
+    }
+
+    static int parseInt(CharSequence input, int start, int end, int min, int max) throws CommandSyntaxException {
+        if (start == end) throw CommandSyntaxException.BUILT_IN_EXCEPTIONS.readerExpectedInt().createWithContext(reader(input, start));
+        int i = start;
+        boolean negative = input.charAt(i) == '-';
+        if (negative || input.charAt(i) == '+') i++;
+        if (i == end) throw invalidInt(input, start, end, start);
+
+        long value = 0;
+        for (; i < end; i++) {
+            char c = input.charAt(i);
+            if (c < '0' || c > '9') throw invalidInt(input, start, end, i);
+            // Stop accumulating once out of range, but keep validating the remaining digits
+            if (value <= Integer.MAX_VALUE + 1L) value = value * 10 + (c - '0');
+        }
+        if (negative) value = -value;
+
+        if (value < min) {
+            throw CommandSyntaxException.BUILT_IN_EXCEPTIONS.integerTooLow().createWithContext(reader(input, start), span(input, start, end), min);
+        }
+        if (value > max) {
+            throw CommandSyntaxException.BUILT_IN_EXCEPTIONS.integerTooHigh().createWithContext(reader(input, start), span(input, start, end), max);
+        }
+        return (int) value;
+    }
+
+    static double parseDouble(CharSequence input, int start, int end) throws CommandSyntaxException {
+        int i = start;
+        boolean negative = i < end && input.charAt(i) == '-';
+        if (i < end && (negative || input.charAt(i) == '+')) i++;
+
+        long mantissa = 0;
+        int digits = 0; // significant digits kept in the mantissa
+        int exponent = 0;
+        boolean truncated = false;
+        boolean any = false;
+
+        for (; i < end && isDigit(input.charAt(i)); i++) {
+            int digit = input.charAt(i) - '0';
+            any = true;
+            if (mantissa == 0 && digit == 0) continue;
+            if (digits < 18) {
+                mantissa = mantissa * 10 + digit;
+                digits++;
+            } else {
+                exponent++;
+                truncated = true;
+            }
+        }
+        if (i < end && input.charAt(i) == '.') {
+            for (i++; i < end && isDigit(input.charAt(i)); i++) {
+                int digit = input.charAt(i) - '0';
+                any = true;
+                if (mantissa == 0 && digit == 0) {
+                    exponent--;
+                } else if (digits < 18) {
+                    mantissa = mantissa * 10 + digit;
+                    digits++;
+                    exponent--;
+                } else {
+                    truncated = true;
+                }
+            }
+        }
+        if (!any) throw invalidDouble(input, start, end, i);
+
+        if (i < end && (input.charAt(i) == 'e' || input.charAt(i) == 'E')) {
+            i++;
+            boolean negativeExponent = i < end && input.charAt(i) == '-';
+            if (i < end && (negativeExponent || input.charAt(i) == '+')) i++;
+            if (i == end || !isDigit(input.charAt(i))) throw invalidDouble(input, start, end, i);
+            int explicit = 0;
+            for (; i < end && isDigit(input.charAt(i)); i++) {
+                if (explicit < 10_000) explicit = explicit * 10 + (input.charAt(i) - '0');
+            }
+            exponent += negativeExponent ? -explicit : explicit;
+        }
+        if (i != end) throw invalidDouble(input, start, end, i);
+
+        double value;
+        if (mantissa == 0) {
+            value = 0;
+        } else if (!truncated && digits <= 15 && exponent >= -22 && exponent <= 22) {
+            // Both operands are exact, so the single rounding of the division or product is correct
+            value = exponent < 0 ? mantissa / POWERS_OF_TEN[-exponent] : mantissa * POWERS_OF_TEN[exponent];
+        } else {
+            // Rare, too many digits or a large exponent for the exact fast path
+            value = Math.abs(Double.parseDouble(span(input, start, end)));
+        }
+        if (Double.isInfinite(value)) throw invalidDouble(input, start, end, start);
+        return negative ? -value : value;
+    }
+
+    static Duration parseDuration(CharSequence input, int start, int end) throws CommandSyntaxException {
+        if (start == end) throw INVALID_DURATION.createWithContext(reader(input, start), "");
+        long millis = 0;
+        int i = start;
+        try {
+            while (i < end) {
+                if (!isDigit(input.charAt(i))) throw INVALID_DURATION.createWithContext(reader(input, i), span(input, start, end));
+                long amount = 0;
+                for (; i < end && isDigit(input.charAt(i)); i++) {
+                    amount = Math.addExact(Math.multiplyExact(amount, 10), input.charAt(i) - '0');
+                }
+
+                long unit;
+                if (i == end) {
+                    unit = 1_000; // a bare number means seconds
+                } else {
+                    char c = Character.toLowerCase(input.charAt(i));
+                    if (c == 'm' && i + 1 < end && Character.toLowerCase(input.charAt(i + 1)) == 's') {
+                        unit = 1;
+                        i++;
+                    } else {
+                        unit = switch (c) {
+                            case 's' -> 1_000L;
+                            case 'm' -> 60_000L;
+                            case 'h' -> 3_600_000L;
+                            case 'd' -> 86_400_000L;
+                            case 'w' -> 604_800_000L;
+                            default -> throw INVALID_DURATION.createWithContext(reader(input, i), span(input, start, end));
+                        };
+                    }
+                    i++;
+                }
+                millis = Math.addExact(millis, Math.multiplyExact(amount, unit));
+            }
+        } catch (ArithmeticException e) {
+            throw INVALID_DURATION.createWithContext(reader(input, start), span(input, start, end));
+        }
+        return Duration.ofMillis(millis);
+    }
+
+    static UUID parseUuid(CharSequence input, int start, int end) throws CommandSyntaxException {
+        if (end - start != 36) throw INVALID_UUID.createWithContext(reader(input, start), span(input, start, end));
+        long most = 0, least = 0;
+        for (int i = 0; i < 36; i++) {
+            char c = input.charAt(start + i);
+            if (i == 8 || i == 13 || i == 18 || i == 23) {
+                if (c != '-') throw INVALID_UUID.createWithContext(reader(input, start + i), span(input, start, end));
+                continue;
+            }
+            int digit = Character.digit(c, 16);
+            if (digit < 0) throw INVALID_UUID.createWithContext(reader(input, start + i), span(input, start, end));
+            if (i < 18) most = most << 4 | digit;
+            else least = least << 4 | digit;
+        }
+        return new UUID(most, least);
+    }
+
+    static Player parsePlayer(CharSequence input, int start, int end) throws CommandSyntaxException {
+        String name = span(input, start, end);
+        // Names are at most 16 characters, so longer values can't match anyone
+        Player player = end - start > 16 ? null : Bukkit.getPlayerExact(name);
+        if (player == null) throw UNKNOWN_PLAYER.createWithContext(reader(input, start), name);
+        return player;
+    }
+
+    static <E extends Enum<E>> FlagConverter<E> enumeration(Class<E> type) {
+        E[] constants = type.getEnumConstants();
+        String[] names = new String[constants.length];
+        for (int i = 0; i < constants.length; i++) names[i] = constants[i].name().toLowerCase(Locale.ROOT);
+        DynamicCommandExceptionType invalid = new DynamicCommandExceptionType(value ->
+                new LiteralMessage("Invalid value '" + value + "', expected one of " + String.join(", ", names)));
+
+        return (input, start, end) -> {
+            for (int i = 0; i < names.length; i++) {
+                if (equalsIgnoreCase(names[i], input, start, end)) return constants[i];
+            }
+            throw invalid.createWithContext(reader(input, start), span(input, start, end));
+        };
+    }
+
+    private static boolean equalsIgnoreCase(String lowerCase, CharSequence input, int start, int end) {
+        if (lowerCase.length() != end - start) return false;
+        for (int i = 0; i < lowerCase.length(); i++) {
+            if (Character.toLowerCase(input.charAt(start + i)) != lowerCase.charAt(i)) return false;
+        }
+        return true;
+    }
+
+    private static CommandSyntaxException invalidInt(CharSequence input, int start, int end, int cursor) {
+        return CommandSyntaxException.BUILT_IN_EXCEPTIONS.readerInvalidInt().createWithContext(reader(input, cursor), span(input, start, end));
+    }
+
+    private static CommandSyntaxException invalidDouble(CharSequence input, int start, int end, int cursor) {
+        return CommandSyntaxException.BUILT_IN_EXCEPTIONS.readerInvalidDouble().createWithContext(reader(input, cursor), span(input, start, end));
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static String span(CharSequence input, int start, int end) {
+        return input.subSequence(start, end).toString();
+    }
+
+    // Only built for errors, to carry the input and cursor
+    private static StringReader reader(CharSequence input, int cursor) {
+        StringReader reader = new StringReader(input.toString());
+        reader.setCursor(cursor);
+        return reader;
+    }
+}
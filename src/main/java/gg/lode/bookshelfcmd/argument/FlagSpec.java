@@ -0,0 +1,530 @@
+package gg.lode.bookshelfcmd.argument;
+
+import com.mojang.brigadier.exceptions.CommandSyntaxException;
+import gg.lode.bookshelfcmd.util.PrefixIndex;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * An immutable, precompiled description of the flags a command understands.
+ * <p>
+ * Build one once, typically when the argument is constructed, and reuse it for every
+ * invocation. Parsing and sanitizing run a single character-scanning pass over the input
+ * without regular expressions, {@link String#split(String)} or boxed characters.
+ * <p>
+ * Example:
+ * <pre>{@code
+ * FlagSpec spec = FlagSpec.of(Set.of('s', 'e'), Set.of('d'), Set.of("skip"), Set.of("duration"));
+ * FlagArgument.ParsedFlags flags = spec.parse("player -se -d 20 --duration 7d");
+ * String remainder = spec.sanitize("player -se -d 20 --duration 7d"); // "player"
+ * }</pre>
+ * Value flags can be given a {@link FlagConverter}, so their values are converted during the
+ * same pass:
+ * <pre>{@code
+ * FlagSpec typed = spec.withConverter("duration", FlagConverter.duration());
+ * Duration duration = typed.parseStrict("--duration 7d").getWordFlagValue("duration", Duration.class);
+ * }</pre>
+ */
+public final class FlagSpec {
+
+    static final FlagSpec EMPTY = new FlagSpec(Set.of(), Set.of(), Set.of(), Set.of(), Set.of());
+
+    private final char[] flags; // sorted, includes value flags
+    private final long valueLow;
+    private final long valueHigh;
+    private final char[] valueExtra; // sorted non-ASCII value flags
+    private final char[] valueFlags; // sorted, index is the value slot used by ParsedFlags
+
+    private final PrefixIndex words; // sorted union of word flags and word value flags, index is the word id
+    private final boolean[] strippedWords; // words removed by sanitize
+    private final boolean[] valueWords; // words that expect a value
+    private final boolean stripAllWords; // no word flags declared, so every --word is stripped
+
+    private final FlagConverter<?>[] flagConverters; // by value slot, null when there are none
+    private final FlagConverter<?>[] wordConverters; // by word id, null when there are none
+
+    private FlagSpec(Set<Character> flags, Set<Character> valueFlags, Set<String> wordFlags, Set<String> wordValueFlags, Set<String> strippedWords) {
+        char[] declared = new char[flags.size() + valueFlags.size()];
+        int declaredCount = 0;
+        for (Character flag : flags) declared[declaredCount++] = flag;
+        for (Character flag : valueFlags) declared[declaredCount++] = flag;
+        this.flags = distinctSorted(declared);
+
+        long low = 0, high = 0;
+        char[] all = new char[valueFlags.size()];
+        char[] extra = new char[valueFlags.size()];
+        int count = 0, extraCount = 0;
+        for (Character boxed : valueFlags) {
+            char flag = boxed;
+            all[count++] = flag;
+            if (flag < 64) low |= 1L << flag;
+            else if (flag < 128) high |= 1L << (flag - 64);
+            else extra[extraCount++] = flag;
+        }
+        this.valueLow = low;
+        this.valueHigh = high;
+        this.valueExtra = distinctSorted(Arrays.copyOf(extra, extraCount));
+        this.valueFlags = distinctSorted(all);
+
+        Set<String> allWords = new HashSet<>(wordFlags);
+        allWords.addAll(wordValueFlags);
+        this.words = PrefixIndex.of(allWords);
+        int distinct = words.size();
+        this.strippedWords = new boolean[distinct];
+        this.valueWords = new boolean[distinct];
+        for (int i = 0; i < distinct; i++) {
+            this.strippedWords[i] = strippedWords.contains(words.get(i));
+            this.valueWords[i] = wordValueFlags.contains(words.get(i));
+        }
+        this.stripAllWords = strippedWords.isEmpty();
+        this.flagConverters = null;
+        this.wordConverters = null;
+    }
+
+    private FlagSpec(FlagSpec spec, FlagConverter<?>[] flagConverters, FlagConverter<?>[] wordConverters) {
+        this.flags = spec.flags;
+        this.valueLow = spec.valueLow;
+        this.valueHigh = spec.valueHigh;
+        this.valueExtra = spec.valueExtra;
+        this.valueFlags = spec.valueFlags;
+        this.words = spec.words;
+        this.strippedWords = spec.strippedWords;
+        this.valueWords = spec.valueWords;
+        this.stripAllWords = spec.stripAllWords;
+        this.flagConverters = flagConverters;
+        this.wordConverters = wordConverters;
+    }
+
+    /**
+     * Compiles a flag spec without word flags that take a value.
+     *
+     * @param flags      Single-char boolean flags, e.g. Set.of('s', 'e')
+     * @param valueFlags Single-char flags that expect a value, e.g. Set.of('d')
+     * @param wordFlags  Word flags (without --), e.g. Set.of("skip")
+     * @return The compiled spec
+     */
+    public static FlagSpec of(Set<Character> flags, Set<Character> valueFlags, Set<String> wordFlags) {
+        return of(flags, valueFlags, wordFlags, Set.of());
+    }
+
+    /**
+     * Compiles a flag spec.
+     * <p>
+     * When no word flags are declared at all, {@link #sanitize(CharSequence)} strips every word flag
+     * it encounters, mirroring {@link FlagArgument#sanitizeInput(String, Set, Set, Set)}.
+     *
+     * @param flags          Single-char boolean flags, e.g. Set.of('s', 'e')
+     * @param valueFlags     Single-char flags that expect a value, e.g. Set.of('d')
+     * @param wordFlags      Word flags (without --), e.g. Set.of("skip")
+     * @param wordValueFlags Word flags that expect a value, e.g. Set.of("duration")
+     * @return The compiled spec
+     */
+    public static FlagSpec of(Set<Character> flags, Set<Character> valueFlags, Set<String> wordFlags, Set<String> wordValueFlags) {
+        if (flags.isEmpty() && valueFlags.isEmpty() && wordFlags.isEmpty() && wordValueFlags.isEmpty()) return EMPTY;
+        Set<String> declared = new HashSet<>(wordFlags);
+        declared.addAll(wordValueFlags);
+        return new FlagSpec(flags, valueFlags, wordFlags, wordValueFlags, declared);
+    }
+
+    /**
+     * Compiles a spec for the legacy static helpers, where the word flags to strip are
+     * given separately from the word flags that take a value.
+     */
+    static FlagSpec legacy(Set<Character> valueFlags, Set<String> wordFlagsToStrip, Set<String> wordValueFlags) {
+        if (valueFlags.isEmpty() && wordFlagsToStrip.isEmpty() && wordValueFlags.isEmpty()) return EMPTY;
+        return new FlagSpec(Set.of(), valueFlags, wordFlagsToStrip, wordValueFlags, wordFlagsToStrip);
+    }
+
+    /**
+     * Returns a copy of this spec converting the values of a value flag.
+     *
+     * @param flag      The value flag
+     * @param converter The converter, or null to keep values as Strings
+     * @return The new spec
+     * @throws IllegalArgumentException If the flag was not declared as a value flag
+     */
+    public FlagSpec withConverter(char flag, FlagConverter<?> converter) {
+        int slot = valueSlot(flag);
+        if (slot < 0) throw new IllegalArgumentException("-" + flag + " is not a value flag");
+        FlagConverter<?>[] converters = flagConverters == null ? new FlagConverter<?>[valueFlags.length] : flagConverters.clone();
+        converters[slot] = converter;
+        return new FlagSpec(this, converters, wordConverters);
+    }
+
+    /**
+     * Returns a copy of this spec converting the values of a word value flag.
+     *
+     * @param word      The word value flag (without --)
+     * @param converter The converter, or null to keep values as Strings
+     * @return The new spec
+     * @throws IllegalArgumentException If the word was not declared as a word value flag
+     */
+    public FlagSpec withConverter(String word, FlagConverter<?> converter) {
+        int id = indexOfWord(word, 0, word.length());
+        if (id < 0 || !valueWords[id]) throw new IllegalArgumentException("--" + word + " is not a word value flag");
+        FlagConverter<?>[] converters = wordConverters == null ? new FlagConverter<?>[words.size()] : wordConverters.clone();
+        converters[id] = converter;
+        return new FlagSpec(this, flagConverters, converters);
+    }
+
+    /**
+     * Parses flags and their values from the input in a single pass.
+     * Supports grouped flags like -es, values after value flags, and word flags (--skip, --duration 7d).
+     * <p>
+     * Values that fail conversion are kept as Strings only, see {@link #parseStrict(CharSequence)}.
+     *
+     * @param input Full input string, e.g. "sub -d 20 -es 50 --duration 7d"
+     * @return ParsedFlags containing active flags, assigned values, and active word flags
+     */
+    public FlagArgument.ParsedFlags parse(CharSequence input) {
+        try {
+            return parse(input, false);
+        } catch (CommandSyntaxException e) {
+            throw new IllegalStateException("Lenient parsing does not throw", e);
+        }
+    }
+
+    /**
+     * Parses flags like {@link #parse(CharSequence)}, failing on the first value its converter rejects.
+     *
+     * @param input Full input string, e.g. "sub -d 20 -es 50 --duration 7d"
+     * @return ParsedFlags containing active flags, assigned and converted values, and active word flags
+     * @throws CommandSyntaxException If a value could not be converted, with the cursor in that value
+     */
+    public FlagArgument.ParsedFlags parseStrict(CharSequence input) throws CommandSyntaxException {
+        return parse(input, true);
+    }
+
+    private FlagArgument.ParsedFlags parse(CharSequence input, boolean strict) throws CommandSyntaxException {
+        if (input == null) return new FlagArgument.ParsedFlags(this, "");
+        FlagArgument.ParsedFlags parsed = new FlagArgument.ParsedFlags(this, input);
+
+        int length = input.length();
+        int pendingSlot = -1; // value flag slot owed a value
+        int pendingWord = -1; // word id owed a value
+
+        int cursor = 0;
+        while (true) {
+            int start = skipWhitespace(input, cursor, length);
+            if (start == length) break;
+            int end = tokenEnd(input, start, length);
+            cursor = end;
+
+            boolean dashed = input.charAt(start) == '-';
+
+            // Assign the value owed to the previous flag, if any
+            if (pendingSlot >= 0 || pendingWord >= 0) {
+                if (isValue(input, start, end)) {
+                    if (pendingSlot >= 0) {
+                        parsed.putFlagValue(pendingSlot, start, end);
+                        if (flagConverters != null && flagConverters[pendingSlot] != null) {
+                            parsed.putConvertedFlagValue(pendingSlot, convert(flagConverters[pendingSlot], input, start, end, strict));
+                        }
+                    } else {
+                        parsed.putWordFlagValue(pendingWord, start, end);
+                        if (wordConverters != null && wordConverters[pendingWord] != null) {
+                            parsed.putConvertedWordFlagValue(pendingWord, convert(wordConverters[pendingWord], input, start, end, strict));
+                        }
+                    }
+                    pendingSlot = -1;
+                    pendingWord = -1;
+                    continue;
+                }
+                pendingSlot = -1;
+                pendingWord = -1;
+            }
+
+            if (!dashed || end - start < 2) continue;
+
+            // Word flag: --skip or --duration 7d
+            if (input.charAt(start + 1) == '-') {
+                int id = indexOfWord(input, start + 2, end);
+                if (id < 0) {
+                    parsed.addUnknownWordFlag(start + 2, end);
+                    continue;
+                }
+                parsed.addWordFlag(id);
+                if (valueWords[id]) pendingWord = id;
+                continue;
+            }
+
+            if (isNegativeNumber(input, start, end)) continue;
+
+            for (int i = start + 1; i < end; i++) {
+                char flag = input.charAt(i);
+                parsed.addFlag(flag);
+                if (i == end - 1 && isValueFlag(flag)) {
+                    pendingSlot = valueSlot(flag);
+                    parsed.putFlagValue(pendingSlot, -1, -1); // no value supplied (yet)
+                }
+            }
+        }
+
+        return parsed;
+    }
+
+    private static Object convert(FlagConverter<?> converter, CharSequence input, int start, int end, boolean strict) throws CommandSyntaxException {
+        try {
+            return converter.convert(input, start, end);
+        } catch (CommandSyntaxException e) {
+            if (strict) throw e;
+            return null;
+        }
+    }
+
+    /**
+     * Removes single-char flags, their values, word flags and word flag values from the input.
+     * Only declared word flags are stripped, unless no word flags were declared at all.
+     *
+     * @param input The full command input, e.g. "sub -d 20 hello --skip"
+     * @return A sanitized string with only non-flag arguments, e.g. "sub hello"
+     */
+    public String sanitize(CharSequence input) {
+        if (input == null || input.length() == 0) return "";
+
+        int length = input.length();
+        StringBuilder result = new StringBuilder(length);
+        boolean skipValue = false;
+
+        int cursor = 0;
+        while (true) {
+            int start = skipWhitespace(input, cursor, length);
+            if (start == length) break;
+            int end = tokenEnd(input, start, length);
+            cursor = end;
+
+            boolean dashed = input.charAt(start) == '-';
+            if (skipValue) {
+                skipValue = false;
+                if (isValue(input, start, end)) continue; // skip the value token
+            }
+
+            // Word flag: --skip, --force, --duration 7d, etc.
+            if (dashed && end - start > 2 && input.charAt(start + 1) == '-') {
+                int id = indexOfWord(input, start + 2, end);
+                if (stripAllWords || (id >= 0 && strippedWords[id])) {
+                    skipValue = id >= 0 && valueWords[id];
+                    continue; // strip it
+                }
+                append(result, input, start, end);
+                continue;
+            }
+
+            // Single-char flag tokens like "-a" or "-bc", but not negative numbers "-123"
+            if (dashed && end - start > 1 && !isNegativeNumber(input, start, end)) {
+                skipValue = isValueFlag(input.charAt(end - 1));
+                continue; // skip this flag token
+            }
+
+            // Normal argument or negative number
+            append(result, input, start, end);
+        }
+
+        return result.toString();
+    }
+
+    /**
+     * Checks if all characters of the given flag set are present as single-char flags in the input.
+     *
+     * @param input   The full command input string, e.g. "/test -sd 20 -e 50"
+     * @param flagSet The flag characters to check for, e.g. "se"
+     * @return true if all flags are present, false otherwise
+     */
+    public static boolean containsFlags(CharSequence input, CharSequence flagSet) {
+        if (flagSet == null || flagSet.length() == 0 || input == null) return false;
+
+        long requiredLow = 0, requiredHigh = 0;
+        for (int i = 0; i < flagSet.length(); i++) {
+            char flag = flagSet.charAt(i);
+            if (flag < 64) requiredLow |= 1L << flag;
+            else if (flag < 128) requiredHigh |= 1L << (flag - 64);
+            else if (!containsFlag(input, flag)) return false;
+        }
+
+        long presentLow = 0, presentHigh = 0;
+        int length = input.length();
+        int cursor = 0;
+        while (true) {
+            int start = skipWhitespace(input, cursor, length);
+            if (start == length) break;
+            int end = tokenEnd(input, start, length);
+            cursor = end;
+
+            if (!isFlagChunk(input, start, end)) continue;
+            for (int i = start + 1; i < end; i++) {
+                char flag = input.charAt(i);
+                if (flag < 64) presentLow |= 1L << flag;
+                else if (flag < 128) presentHigh |= 1L << (flag - 64);
+            }
+            if ((presentLow & requiredLow) == requiredLow && (presentHigh & requiredHigh) == requiredHigh) return true;
+        }
+
+        return (presentLow & requiredLow) == requiredLow && (presentHigh & requiredHigh) == requiredHigh;
+    }
+
+    /**
+     * Checks if a word flag (--word) is present in the input.
+     *
+     * @param input The full command input string, e.g. "/randomnick @a --skip"
+     * @param word  The word flag to look for (without --), e.g. "skip"
+     * @return true if --word is present, false otherwise
+     */
+    public static boolean containsWordFlag(CharSequence input, String word) {
+        if (input == null || word == null || word.isEmpty()) return false;
+
+        int length = input.length();
+        int cursor = 0;
+        while (true) {
+            int start = skipWhitespace(input, cursor, length);
+            if (start == length) return false;
+            int end = tokenEnd(input, start, length);
+            cursor = end;
+
+            if (end - start == word.length() + 2 && input.charAt(start) == '-' && input.charAt(start + 1) == '-'
+                    && PrefixIndex.compare(word, input, start + 2, end) == 0) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Checks if the given single-char flag expects a value.
+     *
+     * @param flag The flag character
+     * @return true if the flag was declared as a value flag
+     */
+    public boolean isValueFlag(char flag) {
+        if (flag < 64) return (valueLow & (1L << flag)) != 0;
+        if (flag < 128) return (valueHigh & (1L << (flag - 64))) != 0;
+        return Arrays.binarySearch(valueExtra, flag) >= 0;
+    }
+
+    /**
+     * Checks if the given word flag expects a value.
+     *
+     * @param word The word flag (without --)
+     * @return true if the word was declared as a word value flag
+     */
+    public boolean isValueWord(String word) {
+        int id = indexOfWord(word, 0, word.length());
+        return id >= 0 && valueWords[id];
+    }
+
+    /**
+     * @return the slot of a value flag in ParsedFlags' offset table, or -1 if it takes no value
+     */
+    int valueSlot(char flag) {
+        return isValueFlag(flag) ? Arrays.binarySearch(valueFlags, flag) : -1;
+    }
+
+    /**
+     * @return the declared single-char flags in sorted order, shared and must not be modified
+     */
+    char[] flags() {
+        return flags;
+    }
+
+    /**
+     * @return the declared word flags in sorted order, indexed by word id
+     */
+    PrefixIndex words() {
+        return words;
+    }
+
+    /**
+     * @return whether the word with the given id expects a value
+     */
+    boolean isValueWord(int id) {
+        return valueWords[id];
+    }
+
+    int valueFlagCount() {
+        return valueFlags.length;
+    }
+
+    int wordCount() {
+        return words.size();
+    }
+
+    private static boolean containsFlag(CharSequence input, char flag) {
+        int length = input.length();
+        int cursor = 0;
+        while (true) {
+            int start = skipWhitespace(input, cursor, length);
+            if (start == length) return false;
+            int end = tokenEnd(input, start, length);
+            cursor = end;
+
+            if (!isFlagChunk(input, start, end)) continue;
+            for (int i = start + 1; i < end; i++) {
+                if (input.charAt(i) == flag) return true;
+            }
+        }
+    }
+
+    /**
+     * Looks up the word id of the given region of the input.
+     *
+     * @return the word id, or -1 if the word was not declared
+     */
+    int indexOfWord(CharSequence input, int from, int to) {
+        return words.indexOf(input, from, to);
+    }
+
+    private static boolean isFlagChunk(CharSequence input, int start, int end) {
+        return end - start > 1 && input.charAt(start) == '-' && input.charAt(start + 1) != '-'
+                && !isNegativeNumber(input, start, end);
+    }
+
+    /**
+     * @return Whether a token can be the value of a value flag: anything but a flag, so plain
+     * words and negative numbers like {@code -5} or {@code -2.5}
+     */
+    static boolean isValue(CharSequence input, int start, int end) {
+        return input.charAt(start) != '-' || isNegativeNumber(input, start, end);
+    }
+
+    static boolean isNegativeNumber(CharSequence input, int start, int end) {
+        if (end - start < 2 || input.charAt(start) != '-') return false;
+        boolean digits = false;
+        boolean point = false;
+        for (int i = start + 1; i < end; i++) {
+            char c = input.charAt(i);
+            if (c == '.' && !point) point = true;
+            else if (c >= '0' && c <= '9') digits = true;
+            else return false;
+        }
+        return digits;
+    }
+
+    static int skipWhitespace(CharSequence input, int from, int length) {
+        while (from < length && isWhitespace(input.charAt(from))) from++;
+        return from;
+    }
+
+    static int tokenEnd(CharSequence input, int from, int length) {
+        while (from < length && !isWhitespace(input.charAt(from))) from++;
+        return from;
+    }
+
+    // Same character class as the "\\s" the original split used
+    static boolean isWhitespace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+
+    private static void append(StringBuilder result, CharSequence input, int start, int end) {
+        if (!result.isEmpty()) result.append(' ');
+        result.append(input, start, end);
+    }
+
+    private static char[] distinctSorted(char[] chars) {
+        Arrays.sort(chars);
+        int distinct = 0;
+        for (int i = 0; i < chars.length; i++) {
+            if (distinct == 0 || chars[i] != chars[distinct - 1]) chars[distinct++] = chars[i];
+        }
+        return distinct == chars.length ? chars : Arrays.copyOf(chars, distinct);
+    }
+}
@@ -0,0 +1,77 @@
+package gg.lode.bookshelfcmd.argument;
+
+import java.util.Arrays;
+
+/**
+ * Offset spans of the tokens in an input, produced by a single pass over a {@link CharSequence}.
+ * <p>
+ * Tokens are only materialized as Strings when {@link #get(int)} is called, so callers can
+ * inspect, compare and prefix-search them in place.
+ */
+final class InputTokens {
+
+    private final CharSequence input;
+    private int[] spans = new int[16]; // [start, end) pairs
+    private int count;
+
+    private InputTokens(CharSequence input) {
+        this.input = input;
+    }
+
+    /**
+     * Split the input on a separator with the semantics of {@link String#split(String)} on a
+     * single literal character: empty tokens between separators are kept, trailing ones are not.
+     *
+     * @param input     The input to tokenize
+     * @param separator The separator character
+     * @return The token spans
+     */
+    static InputTokens split(CharSequence input, char separator) {
+        InputTokens tokens = new InputTokens(input);
+        int length = input.length();
+        int start = 0;
+        for (int i = 0; i < length; i++) {
+            if (input.charAt(i) == separator) {
+                tokens.add(start, i);
+                start = i + 1;
+            }
+        }
+        tokens.add(start, length);
+
+        // String#split drops trailing empty tokens, unless the separator never occurs
+        if (tokens.count == 1) return tokens;
+        while (tokens.count > 0 && tokens.isEmpty(tokens.count - 1)) tokens.count--;
+        return tokens;
+    }
+
+    int count() {
+        return count;
+    }
+
+    int start(int index) {
+        return spans[index * 2];
+    }
+
+    int end(int index) {
+        return spans[index * 2 + 1];
+    }
+
+    boolean isEmpty(int index) {
+        return start(index) == end(index);
+    }
+
+    boolean startsWith(int index, char c) {
+        return !isEmpty(index) && input.charAt(start(index)) == c;
+    }
+
+    String get(int index) {
+        return input.subSequence(start(index), end(index)).toString();
+    }
+
+    private void add(int start, int end) {
+        if (count * 2 == spans.length) spans = Arrays.copyOf(spans, spans.length * 2);
+        spans[count * 2] = start;
+        spans[count * 2 + 1] = end;
+        count++;
+    }
+}
@@ -1,18 +1,51 @@
 package gg.lode.bookshelfcmd.argument;
 
+import com.mojang.brigadier.suggestion.Suggestions;
+import com.mojang.brigadier.suggestion.SuggestionsBuilder;
 import dev.jorel.commandapi.SuggestionInfo;
 import dev.jorel.commandapi.arguments.ArgumentSuggestions;
 import dev.jorel.commandapi.arguments.StringArgument;
+import gg.lode.bookshelfcmd.util.FuzzyMatcher;
+import gg.lode.bookshelfcmd.util.PrefixIndex;
 import org.bukkit.command.CommandSender;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
 import java.util.function.Function;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
 
 public class PreStringArgument extends StringArgument {
 
+    private static final int DEFAULT_FUZZY_RESULTS = 50;
+
+    private int limit = Integer.MAX_VALUE;
+    private boolean fuzzy;
+    private boolean indexed; // false when suggestions are computed by a function
+    private List<String> listed; // null unless suggestions come from a list
+    private PrefixIndex listedIndex; // the list indexed for fuzzy matching
+    private volatile Matcher matcher; // the fuzzy matcher of the last index seen
+
     public PreStringArgument(String nodeName, List<String> suggestedArguments) {
         super(nodeName);
-        replaceSuggestions(ArgumentSuggestions.strings(s -> suggestedArguments.toArray(String[]::new)));
+        this.listed = suggestedArguments;
+        this.indexed = true;
+        // Filter the live list in place, rather than copying it into an array per request
+        replaceSuggestions((info, builder) -> {
+            if (fuzzy) return suggestFuzzy(listedIndex, builder);
+            String prefix = builder.getRemainingLowerCase();
+            int emitted = 0;
+            for (String suggestion : suggestedArguments) {
+                if (emitted >= limit) break;
+                if (suggestion.toLowerCase(Locale.ROOT).startsWith(prefix)) {
+                    builder.suggest(suggestion);
+                    emitted++;
+                }
+            }
+            return builder.buildFuture();
+        });
     }
 
     public PreStringArgument(String nodeName, Function<SuggestionInfo<CommandSender>, String[]> suggestionFunction) {
@@ -20,4 +53,93 @@ public class PreStringArgument extends StringArgument {
         replaceSuggestions(ArgumentSuggestions.strings(suggestionFunction));
     }
 
+    /**
+     * Suggest from an immutable, pre-sorted index. Matching entries are found by binary search,
+     * so only the entries starting with the typed prefix are visited.
+     *
+     * @param nodeName The node name
+     * @param index    The entries, built with {@link PrefixIndex#ofIgnoreCase(Collection)} to match case-insensitively
+     */
+    public PreStringArgument(String nodeName, PrefixIndex index) {
+        super(nodeName);
+        this.indexed = true;
+        replaceSuggestions((info, builder) -> suggest(index, builder));
+    }
+
+    /**
+     * Suggest from entries that change over time. The entries are only re-read and re-indexed
+     * when the version changes, e.g. a counter bumped whenever a warp is created or deleted.
+     *
+     * @param nodeName The node name
+     * @param version  The current version of the entries
+     * @param entries  The entries, read again whenever the version changes
+     */
+    public PreStringArgument(String nodeName, LongSupplier version, Supplier<? extends Collection<String>> entries) {
+        super(nodeName);
+        VersionedIndex index = new VersionedIndex(version, entries);
+        this.indexed = true;
+        replaceSuggestions((info, builder) -> suggest(index.get(), builder));
+    }
+
+    /**
+     * Limit the number of suggestions sent per request.
+     *
+     * @param limit The maximum number of suggestions
+     * @return This argument for chaining
+     */
+    public PreStringArgument withLimit(int limit) {
+        if (limit <= 0) throw new IllegalArgumentException("limit must be positive: " + limit);
+        this.limit = limit;
+        return this;
+    }
+
+    /**
+     * Rank suggestions by fuzzy matching instead of requiring the typed prefix, so
+     * {@code dsw} also suggests {@code diamond_sword}. Only the best matches are sent, up to
+     * the {@link #withLimit(int) limit} or 50 when unlimited.
+     * <p>
+     * A list of suggestions is indexed once, when this is called, so later changes to it are not
+     * matched. Use {@link #PreStringArgument(String, LongSupplier, Supplier)} for entries that change.
+     *
+     * @return This argument for chaining
+     * @throws IllegalStateException If suggestions are computed by a function
+     */
+    public PreStringArgument withFuzzyMatching() {
+        if (!indexed) {
+            throw new IllegalStateException("Fuzzy matching needs a list or index of suggestions");
+        }
+        if (listed != null) listedIndex = PrefixIndex.ofIgnoreCase(listed);
+        this.fuzzy = true;
+        return this;
+    }
+
+    private CompletableFuture<Suggestions> suggest(PrefixIndex index, SuggestionsBuilder builder) {
+        if (fuzzy) return suggestFuzzy(index, builder);
+        String prefix = index.ignoresCase() ? builder.getRemainingLowerCase() : builder.getRemaining();
+        int from = index.from(prefix);
+        int to = (int) Math.min(index.to(prefix), (long) from + limit);
+        for (int i = from; i < to; i++) {
+            builder.suggest(index.get(i));
+        }
+        return builder.buildFuture();
+    }
+
+    private CompletableFuture<Suggestions> suggestFuzzy(PrefixIndex index, SuggestionsBuilder builder) {
+        Matcher matcher = this.matcher;
+        if (matcher == null || matcher.index() != index) {
+            matcher = new Matcher(index, FuzzyMatcher.of(index));
+            this.matcher = matcher;
+        }
+
+        // Brigadier sorts the sent suggestions, the ranking decides which of them are sent
+        int results = limit == Integer.MAX_VALUE ? DEFAULT_FUZZY_RESULTS : limit;
+        for (int i : matcher.matcher().top(builder.getRemaining(), results, i -> true)) {
+            builder.suggest(index.get(i));
+        }
+        return builder.buildFuture();
+    }
+
+    private record Matcher(PrefixIndex index, FuzzyMatcher matcher) {
+    }
+
 }
@@ -0,0 +1,156 @@
+package gg.lode.bookshelfcmd.argument;
+
+import com.mojang.brigadier.exceptions.CommandSyntaxException;
+import com.mojang.brigadier.suggestion.Suggestions;
+import com.mojang.brigadier.suggestion.SuggestionsBuilder;
+import dev.jorel.commandapi.SuggestionInfo;
+import dev.jorel.commandapi.arguments.ArgumentSuggestions;
+import gg.lode.bookshelfcmd.util.BookshelfExecutors;
+import gg.lode.bookshelfcmd.util.ExpiringCache;
+import gg.lode.bookshelfcmd.util.PrefixIndex;
+import org.bukkit.command.CommandSender;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Suggestions for the value of a value flag, offered while the cursor is in the value position
+ * after the flag, e.g. right after {@code -d } or {@code --duration }.
+ * <p>
+ * Fixed and versioned values are indexed once and matched by binary search. Values that need a
+ * slow lookup can be computed {@link #async(Function) asynchronously}, and cached by a key of
+ * the request with {@link #async(Function, Function, Duration, int)}.
+ * <p>
+ * Example:
+ * <pre>{@code
+ * new FlagArgument("flags", Set.of(), Set.of('d'), Set.of(), Set.of("mode"))
+ *     .withValueSuggestions('d', ValueSuggestions.of("30m", "1h", "1d", "7d"))
+ *     .withValueSuggestions("mode", ValueSuggestions.of(GameMode.class));
+ * }</pre>
+ */
+public final class ValueSuggestions {
+
+    private final ArgumentSuggestions<CommandSender> suggestions;
+
+    private ValueSuggestions(ArgumentSuggestions<CommandSender> suggestions) {
+        this.suggestions = suggestions;
+    }
+
+    /**
+     * @param values The values, matched ignoring case
+     * @return Suggestions of the values starting with the typed prefix
+     */
+    public static ValueSuggestions of(String... values) {
+        return of(PrefixIndex.ofIgnoreCase(List.of(values)));
+    }
+
+    /**
+     * @param index The values, built with {@link PrefixIndex#ofIgnoreCase(Collection)} to match case-insensitively
+     * @return Suggestions of the values starting with the typed prefix
+     */
+    public static ValueSuggestions of(PrefixIndex index) {
+        return new ValueSuggestions((info, builder) -> suggest(index, builder));
+    }
+
+    /**
+     * @param type The enum type
+     * @return Suggestions of the lower case names of its constants
+     */
+    public static <E extends Enum<E>> ValueSuggestions of(Class<E> type) {
+        E[] constants = type.getEnumConstants();
+        List<String> names = new ArrayList<>(constants.length);
+        for (E constant : constants) names.add(constant.name().toLowerCase(Locale.ROOT));
+        return of(PrefixIndex.ofIgnoreCase(names));
+    }
+
+    /**
+     * @param version The current version of the values
+     * @param values  The values, read and indexed again whenever the version changes
+     * @return Suggestions of the values starting with the typed prefix
+     */
+    public static ValueSuggestions versioned(LongSupplier version, Supplier<? extends Collection<String>> values) {
+        VersionedIndex index = new VersionedIndex(version, values);
+        return new ValueSuggestions((info, builder) -> suggest(index.get(), builder));
+    }
+
+    /**
+     * Compute the values on the shared {@link BookshelfExecutors#suggestions()} executor, e.g.
+     * when they come from a database. While the executor is saturated, nothing is suggested.
+     * Every request computes the values again, see {@link #async(Function, Function, Duration, int)}
+     * to reuse them.
+     *
+     * @param values The values for a request, may block. The info's current argument is the typed prefix.
+     * @return Suggestions of the values starting with the typed prefix, ignoring case
+     */
+    public static ValueSuggestions async(Function<SuggestionInfo<CommandSender>, ? extends Collection<String>> values) {
+        return new ValueSuggestions((info, builder) -> BookshelfExecutors.supply(
+                () -> suggest(values.apply(info), builder), BookshelfExecutors.suggestions(), Suggestions.empty().join()));
+    }
+
+    /**
+     * Compute the values asynchronously like {@link #async(Function)}, and cache them by key.
+     * <p>
+     * Clients request suggestions on every keystroke, so requests with the same key within the
+     * time to live are matched against the cached values on the calling thread instead of
+     * computing them again. The key should hold whatever the values depend on, except the typed
+     * prefix, e.g. the target of the command when the values only depend on it.
+     *
+     * @param values  The values for a request, may block. The info's current argument is the typed prefix.
+     * @param key     The cache key of a request, the values of requests with equal keys are shared
+     * @param ttl     How long computed values stay valid
+     * @param maxSize The maximum number of cached keys
+     * @return Suggestions of the values starting with the typed prefix, ignoring case
+     */
+    public static ValueSuggestions async(Function<SuggestionInfo<CommandSender>, ? extends Collection<String>> values,
+                                         Function<SuggestionInfo<CommandSender>, ?> key, Duration ttl, int maxSize) {
+        ExpiringCache<Object, List<String>> cache = new ExpiringCache<>(maxSize, ttl);
+        return new ValueSuggestions((info, builder) -> {
+            Object cacheKey = key.apply(info);
+            List<String> cached = cache.get(cacheKey);
+            if (cached != null) return CompletableFuture.completedFuture(suggest(cached, builder));
+
+            return BookshelfExecutors.supply(() -> {
+                List<String> computed = List.copyOf(values.apply(info));
+                cache.put(cacheKey, computed);
+                return suggest(computed, builder);
+            }, BookshelfExecutors.suggestions(), Suggestions.empty().join());
+        });
+    }
+
+    /**
+     * @param suggestions Any suggestion provider. Its builder starts at the value, and the
+     *                    info's current argument is the typed prefix.
+     * @return The provider as value suggestions
+     */
+    public static ValueSuggestions of(ArgumentSuggestions<CommandSender> suggestions) {
+        return new ValueSuggestions(suggestions);
+    }
+
+    CompletableFuture<Suggestions> suggest(SuggestionInfo<CommandSender> info, SuggestionsBuilder builder) throws CommandSyntaxException {
+        return suggestions.suggest(info, builder);
+    }
+
+    private static Suggestions suggest(Collection<String> values, SuggestionsBuilder builder) {
+        String prefix = builder.getRemainingLowerCase();
+        for (String value : values) {
+            if (value.toLowerCase(Locale.ROOT).startsWith(prefix)) builder.suggest(value);
+        }
+        return builder.build();
+    }
+
+    private static CompletableFuture<Suggestions> suggest(PrefixIndex index, SuggestionsBuilder builder) {
+        String prefix = index.ignoresCase() ? builder.getRemainingLowerCase() : builder.getRemaining();
+        int to = index.to(prefix);
+        for (int i = index.from(prefix); i < to; i++) {
+            builder.suggest(index.get(i));
+        }
+        return builder.buildFuture();
+    }
+}
@@ -0,0 +1,37 @@
+package gg.lode.bookshelfcmd.argument;
+
+import gg.lode.bookshelfcmd.util.PrefixIndex;
+
+import java.util.Collection;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * A case-insensitive {@link PrefixIndex} over entries that change over time, rebuilt only
+ * when their version changes.
+ */
+final class VersionedIndex {
+
+    private final LongSupplier version;
+    private final Supplier<? extends Collection<String>> entries;
+    private volatile Snapshot snapshot;
+
+    VersionedIndex(LongSupplier version, Supplier<? extends Collection<String>> entries) {
+        this.version = version;
+        this.entries = entries;
+    }
+
+    PrefixIndex get() {
+        long current = version.getAsLong();
+        Snapshot snapshot = this.snapshot;
+        if (snapshot == null || snapshot.version() != current) {
+            // Racing rebuilds produce equal indexes, so whichever is stored last is fine
+            snapshot = new Snapshot(current, PrefixIndex.ofIgnoreCase(entries.get()));
+            this.snapshot = snapshot;
+        }
+        return snapshot.index();
+    }
+
+    private record Snapshot(long version, PrefixIndex index) {
+    }
+}
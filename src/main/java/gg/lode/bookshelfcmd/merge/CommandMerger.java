@@ -6,9 +6,12 @@ import com.mojang.brigadier.tree.CommandNode;
 import com.mojang.brigadier.tree.LiteralCommandNode;
 import dev.jorel.commandapi.Brigadier;
 import dev.jorel.commandapi.CommandAPIPaper;
+import gg.lode.bookshelfcmd.util.CommandRegistryVersion;
 
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 /**
  * Utility for merging vanilla/existing command trees with custom branches.
@@ -21,6 +24,9 @@ import java.util.List;
  *         .executes(info -> info.sender().sendMessage("Custom branch")))
  *     .register("myplugin");
  * }</pre>
+ * <p>
+ * When merging into many commands at once, use {@link #batch()} so the command tree is
+ * only sent to players once.
  */
 public class CommandMerger {
 
@@ -47,6 +53,16 @@ public class CommandMerger {
         return merger;
     }
 
+    /**
+     * Start a batch of merges that are applied together.
+     *
+     * @return A new, empty MergeBatch
+     * @see MergeBatch
+     */
+    public static MergeBatch batch() {
+        return new MergeBatch();
+    }
+
     /**
      * Add a custom branch to the merged command tree.
      *
@@ -73,28 +89,72 @@ public class CommandMerger {
 
     /**
      * Register the merged command under the specified namespace.
+     * <p>
+     * Custom branches are merged structurally into the vanilla tree, see {@link TreeMerger}.
+     * Where a custom node and a vanilla node are both executable, the custom executor wins.
      *
      * @param namespace The namespace to register under (typically plugin name)
+     * @see #registerWithConflicts(String)
      */
-    @SuppressWarnings("unchecked")
     public void register(String namespace) {
+        registerWithConflicts(namespace);
+    }
+
+    /**
+     * Register the merged command like {@link #register(String)}, reporting the nodes that
+     * could not be merged.
+     *
+     * @param namespace The namespace to register under (typically plugin name)
+     * @return The conflicts found while merging, empty if the branches merged cleanly
+     */
+    @SuppressWarnings("unchecked")
+    public List<MergeConflict> registerWithConflicts(String namespace) {
         if (vanillaNode == null) {
             throw new IllegalStateException("No existing command found with name: " + commandName);
         }
 
-        LiteralArgumentBuilder<Object> builder = ((LiteralCommandNode<Object>) vanillaNode).createBuilder();
+        List<MergeConflict> conflicts = new ArrayList<>();
+        CommandAPIPaper.getPaper().registerCommandNode(mergedCopy((LiteralCommandNode<Object>) vanillaNode, customBranches, conflicts), namespace);
+        CommandRegistryVersion.bump();
+        return conflicts;
+    }
+
+    /**
+     * Merge custom branches into a copy of a vanilla command, leaving the vanilla tree untouched.
+     *
+     * @param vanilla   The vanilla command node
+     * @param branches  The custom branches
+     * @param conflicts Receives the conflicts found while merging
+     * @return A builder of the merged command, ready to be registered
+     */
+    @SuppressWarnings("unchecked")
+    static LiteralArgumentBuilder<Object> mergedCopy(LiteralCommandNode<Object> vanilla, List<ArgumentBuilder<?, ?>> branches,
+                                                     List<MergeConflict> conflicts) {
+        LiteralCommandNode<Object> merged = vanilla.createBuilder().build();
 
-        // Copy all existing children from vanilla command
-        for (CommandNode<Object> child : ((LiteralCommandNode<Object>) vanillaNode).getChildren()) {
-            builder.then(child);
+        List<CommandNode<Object>> built = new ArrayList<>(branches.size());
+        Set<String> touched = new HashSet<>();
+        for (ArgumentBuilder<?, ?> branch : branches) {
+            CommandNode<Object> node = ((ArgumentBuilder<Object, ?>) branch).build();
+            built.add(node);
+            touched.add(node.getName());
         }
 
-        // Add custom branches
-        for (ArgumentBuilder<?, ?> branch : customBranches) {
-            builder.then((ArgumentBuilder<Object, ?>) branch);
+        // Share the vanilla children, copying those the branches merge into so the vanilla tree is never modified
+        for (CommandNode<Object> child : vanilla.getChildren()) {
+            merged.addChild(touched.contains(child.getName()) ? TreeMerger.copy(child) : child);
         }
 
-        CommandAPIPaper.getPaper().registerCommandNode(builder, namespace);
+        // Merge custom branches at every depth
+        for (CommandNode<Object> branch : built) {
+            conflicts.addAll(TreeMerger.mergeChild(merged, branch, TreeMerger.Prefer.INCOMING));
+        }
+
+        LiteralArgumentBuilder<Object> builder = merged.createBuilder();
+        for (CommandNode<Object> child : merged.getChildren()) {
+            builder.then(child);
+        }
+        return builder;
     }
 
     /**
@@ -114,4 +174,12 @@ public class CommandMerger {
     public LiteralCommandNode<?> getVanillaNode() {
         return vanillaNode;
     }
+
+    String getCommandName() {
+        return commandName;
+    }
+
+    List<ArgumentBuilder<?, ?>> getBranches() {
+        return customBranches;
+    }
 }
@@ -0,0 +1,125 @@
+package gg.lode.bookshelfcmd.merge;
+
+import com.mojang.brigadier.builder.ArgumentBuilder;
+import com.mojang.brigadier.builder.LiteralArgumentBuilder;
+import com.mojang.brigadier.tree.LiteralCommandNode;
+import com.mojang.brigadier.tree.RootCommandNode;
+import dev.jorel.commandapi.Brigadier;
+import dev.jorel.commandapi.CommandAPIPaper;
+import gg.lode.bookshelfcmd.util.CommandRegistryVersion;
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Applies many {@link CommandMerger} merges to the Brigadier root in a single pass.
+ * <p>
+ * Registering mergers one by one rebuilds each command and resends the whole command tree to
+ * every online player per merge. A batch instead combines every branch of a command into one
+ * merged copy of it, as {@link CommandMerger#register(String)} builds, registers each copy
+ * through CommandAPI, and sends the updated tree to online players once when it is applied.
+ * The vanilla nodes themselves are never modified.
+ * <p>
+ * Example usage:
+ * <pre>{@code
+ * CommandMerger.batch()
+ *     .add(CommandMerger.merge("give").addBranch(giveBranch))
+ *     .add(CommandMerger.merge("tp").addBranch(tpBranch))
+ *     .apply("myplugin");
+ * }</pre>
+ */
+public class MergeBatch {
+
+    // Keyed by command name, so several mergers for the same command are combined
+    private final Map<String, List<CommandMerger>> mergers = new LinkedHashMap<>();
+
+    MergeBatch() {
+    }
+
+    /**
+     * Add a merge to this batch.
+     *
+     * @param merger The merger holding the command and its custom branches
+     * @return This batch for chaining
+     */
+    public MergeBatch add(CommandMerger merger) {
+        mergers.computeIfAbsent(merger.getCommandName(), name -> new ArrayList<>()).add(merger);
+        return this;
+    }
+
+    /**
+     * Add a custom branch to an existing command.
+     *
+     * @param commandName The name of the existing command to merge with
+     * @param branches    The argument builders representing custom branches
+     * @return This batch for chaining
+     */
+    public MergeBatch add(String commandName, ArgumentBuilder<?, ?>... branches) {
+        return add(CommandMerger.merge(commandName).addBranches(branches));
+    }
+
+    /**
+     * @return The number of commands this batch merges into
+     */
+    public int size() {
+        return mergers.size();
+    }
+
+    /**
+     * Apply every merge, then update the command tree of online players once.
+     * <p>
+     * All commands are checked before the tree is touched, so a missing command leaves
+     * the tree unchanged. Must be called on the main server thread.
+     *
+     * @param namespace The namespace to register under (typically plugin name)
+     * @see #applyWithConflicts(String)
+     */
+    public void apply(String namespace) {
+        applyWithConflicts(namespace);
+    }
+
+    /**
+     * Apply every merge like {@link #apply(String)}, reporting the nodes that could not be merged.
+     *
+     * @param namespace The namespace to register under (typically plugin name)
+     * @return The conflicts found while merging, empty if every branch merged cleanly
+     */
+    @SuppressWarnings("unchecked")
+    public List<MergeConflict> applyWithConflicts(String namespace) {
+        RootCommandNode<Object> root = (RootCommandNode<Object>) Brigadier.getRootNode();
+
+        List<String> missing = new ArrayList<>();
+        for (String commandName : mergers.keySet()) {
+            if (!(root.getChild(commandName) instanceof LiteralCommandNode<?>)) missing.add(commandName);
+        }
+        if (!missing.isEmpty()) {
+            throw new IllegalStateException("No existing command found with name: " + String.join(", ", missing));
+        }
+
+        // Build every merged copy first, so a failing branch leaves the tree unchanged
+        List<MergeConflict> conflicts = new ArrayList<>();
+        List<LiteralArgumentBuilder<Object>> merged = new ArrayList<>(mergers.size());
+        for (Map.Entry<String, List<CommandMerger>> entry : mergers.entrySet()) {
+            List<ArgumentBuilder<?, ?>> branches = new ArrayList<>();
+            for (CommandMerger merger : entry.getValue()) {
+                branches.addAll(merger.getBranches());
+            }
+            merged.add(CommandMerger.mergedCopy((LiteralCommandNode<Object>) root.getChild(entry.getKey()), branches, conflicts));
+        }
+
+        // Registering a node does not resend the tree, that happens once below
+        for (LiteralArgumentBuilder<Object> command : merged) {
+            CommandAPIPaper.getPaper().registerCommandNode(command, namespace);
+        }
+
+        CommandRegistryVersion.bump();
+        for (Player player : Bukkit.getOnlinePlayers()) {
+            player.updateCommands();
+        }
+        return conflicts;
+    }
+}
@@ -0,0 +1,39 @@
+package gg.lode.bookshelfcmd.merge;
+
+import com.mojang.brigadier.tree.CommandNode;
+
+/**
+ * A node that could not be merged cleanly by a {@link TreeMerger}.
+ *
+ * @param path     The space separated path of the node, from the node the merge started at
+ * @param kind     What differs between the two nodes
+ * @param existing The node already in the tree
+ * @param incoming The node that was being merged in
+ */
+public record MergeConflict(String path, Kind kind, CommandNode<?> existing, CommandNode<?> incoming) {
+
+    public enum Kind {
+        /**
+         * A literal and an argument share a name. The incoming subtree is dropped.
+         */
+        NODE_TYPE,
+        /**
+         * Two arguments share a name but parse different types. The incoming subtree is dropped.
+         */
+        ARGUMENT_TYPE,
+        /**
+         * Both nodes are executable with different executors. The preferred executor is kept,
+         * and the children are still merged.
+         */
+        EXECUTOR,
+        /**
+         * The nodes redirect to different targets. The incoming subtree is dropped.
+         */
+        REDIRECT
+    }
+
+    @Override
+    public String toString() {
+        return kind + " conflict at '" + path + "'";
+    }
+}
@@ -4,9 +4,12 @@ import com.mojang.brigadier.tree.CommandNode;
 import com.mojang.brigadier.tree.LiteralCommandNode;
 import dev.jorel.commandapi.Brigadier;
 import dev.jorel.commandapi.CommandAPICommand;
+import gg.lode.bookshelfcmd.util.CommandMetrics;
+import gg.lode.bookshelfcmd.util.CommandRegistryVersion;
 import org.bukkit.plugin.java.JavaPlugin;
 
 import java.util.ArrayList;
+import java.util.List;
 
 /**
  * A CommandAPICommand that supports merging with existing vanilla commands.
@@ -34,20 +37,37 @@ public class MergeableCommand extends CommandAPICommand {
      * Merge this command with an existing vanilla command.
      * <p>
      * This preserves all vanilla subcommands/branches while adding
-     * your custom branches on top.
+     * your custom branches on top. Branches present in both are merged
+     * at every depth, see {@link TreeMerger}. Where both are executable,
+     * your executor wins.
      *
      * @param namespace The namespace to register under
+     * @see #mergeWithConflicts(String)
      */
-    @SuppressWarnings("unchecked")
     public void merge(String namespace) {
+        mergeWithConflicts(namespace);
+    }
+
+    /**
+     * Merge this command with an existing vanilla command like {@link #merge(String)},
+     * reporting the nodes that could not be merged.
+     *
+     * @param namespace The namespace to register under
+     * @return The conflicts found while merging, empty if the trees merged cleanly
+     */
+    @SuppressWarnings("unchecked")
+    public List<MergeConflict> mergeWithConflicts(String namespace) {
         CommandNode<?> vanillaNode = Brigadier.getRootNode().getChild(getName());
 
         if (!(vanillaNode instanceof LiteralCommandNode<?>)) {
             // No vanilla command found, just register normally
             register(namespace);
-            return;
+            CommandMetrics.instrument(namespace, getName());
+            CommandRegistryVersion.bump();
+            return List.of();
         }
 
+        List<MergeConflict> conflicts = new ArrayList<>();
         try {
             // Save vanilla children before registration overwrites them
             var vanillaChildren = new ArrayList<>(((LiteralCommandNode<Object>) vanillaNode).getChildren());
@@ -55,20 +75,21 @@ public class MergeableCommand extends CommandAPICommand {
             // Register the custom command normally (this replaces the vanilla node)
             super.register(namespace);
 
-            // Get the newly registered node and re-add vanilla children
+            // Get the newly registered node and merge vanilla children back in
             CommandNode<?> registeredNode = Brigadier.getRootNode().getChild(getName());
             if (registeredNode instanceof LiteralCommandNode<?>) {
                 LiteralCommandNode<Object> registeredLiteral = (LiteralCommandNode<Object>) registeredNode;
                 for (CommandNode<Object> vanillaChild : vanillaChildren) {
-                    if (registeredLiteral.getChild(vanillaChild.getName()) == null) {
-                        registeredLiteral.addChild(vanillaChild);
-                    }
+                    conflicts.addAll(TreeMerger.mergeChild(registeredLiteral, vanillaChild, TreeMerger.Prefer.EXISTING));
                 }
             }
         } catch (Exception e) {
             // Fallback: register normally if reflection fails
             register(namespace);
         }
+        CommandMetrics.instrument(namespace, getName());
+        CommandRegistryVersion.bump();
+        return conflicts;
     }
 
     /**
@@ -79,4 +100,14 @@ public class MergeableCommand extends CommandAPICommand {
     public void merge(JavaPlugin plugin) {
         merge(plugin.getName().toLowerCase());
     }
+
+    /**
+     * Merge this command with an existing vanilla command, reporting the nodes that could not be merged.
+     *
+     * @param plugin The plugin to use for namespace
+     * @return The conflicts found while merging, empty if the trees merged cleanly
+     */
+    public List<MergeConflict> mergeWithConflicts(JavaPlugin plugin) {
+        return mergeWithConflicts(plugin.getName().toLowerCase());
+    }
 }
@@ -0,0 +1,129 @@
+package gg.lode.bookshelfcmd.merge;
+
+import com.mojang.brigadier.Command;
+import com.mojang.brigadier.builder.ArgumentBuilder;
+import com.mojang.brigadier.tree.ArgumentCommandNode;
+import com.mojang.brigadier.tree.CommandNode;
+import com.mojang.brigadier.tree.LiteralCommandNode;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Structural merge of Brigadier command trees.
+ * <p>
+ * Matching literal and argument nodes are merged at every depth, so overlapping branches keep
+ * the sub-branches of both trees. Subtrees that only exist in the incoming tree are shared by
+ * reference rather than copied, and subtrees already present in the existing tree are left
+ * untouched, so the merged tree holds no duplicate nodes. Nodes that cannot be merged are
+ * reported as {@link MergeConflict}s instead of being dropped silently.
+ * <p>
+ * Requirements are lambdas and cannot be compared, so the existing node's requirement is
+ * always kept.
+ */
+public final class TreeMerger {
+
+    public enum Prefer {
+        /**
+         * Keep the executor already in the tree when both nodes are executable.
+         */
+        EXISTING,
+        /**
+         * Replace the executor already in the tree when both nodes are executable.
+         */
+        INCOMING
+    }
+
+    private TreeMerger() {
+    }
+
+    /**
+     * Merge the children of a node into another node.
+     *
+     * @param target The node to merge into, modified in place
+     * @param source The node whose children are merged in
+     * @param prefer Which executor wins when both nodes are executable
+     * @return The conflicts found, empty if the trees merged cleanly
+     */
+    public static <S> List<MergeConflict> merge(CommandNode<S> target, CommandNode<S> source, Prefer prefer) {
+        List<MergeConflict> conflicts = new ArrayList<>();
+        for (CommandNode<S> child : source.getChildren()) {
+            mergeChild(target, child, prefer, target.getName(), conflicts);
+        }
+        return conflicts;
+    }
+
+    /**
+     * Merge a node into the children of another node.
+     *
+     * @param parent The node to merge into, modified in place
+     * @param child  The node to add, or to merge with the child of the same name
+     * @param prefer Which executor wins when both nodes are executable
+     * @return The conflicts found, empty if the trees merged cleanly
+     */
+    public static <S> List<MergeConflict> mergeChild(CommandNode<S> parent, CommandNode<S> child, Prefer prefer) {
+        List<MergeConflict> conflicts = new ArrayList<>();
+        mergeChild(parent, child, prefer, parent.getName(), conflicts);
+        return conflicts;
+    }
+
+    /**
+     * Copy a node and its children, so a tree can be merged into without modifying the original.
+     * Redirect targets are not copied, the copy redirects to the same nodes.
+     *
+     * @param node The node to copy
+     * @return The copy
+     */
+    static <S> CommandNode<S> copy(CommandNode<S> node) {
+        ArgumentBuilder<S, ?> builder = node.createBuilder();
+        // Redirecting nodes have no children, and their builders reject them
+        if (node.getRedirect() == null) {
+            for (CommandNode<S> child : node.getChildren()) {
+                builder.then(copy(child));
+            }
+        }
+        return builder.build();
+    }
+
+    private static <S> void mergeChild(CommandNode<S> parent, CommandNode<S> incoming, Prefer prefer, String path, List<MergeConflict> conflicts) {
+        String childPath = path.isEmpty() ? incoming.getName() : path + " " + incoming.getName();
+        CommandNode<S> existing = parent.getChild(incoming.getName());
+
+        if (existing == null) {
+            parent.addChild(incoming);
+            return;
+        }
+        // Already shared, e.g. when merging the same branch twice
+        if (existing == incoming) return;
+
+        if ((existing instanceof LiteralCommandNode<?>) != (incoming instanceof LiteralCommandNode<?>)) {
+            conflicts.add(new MergeConflict(childPath, MergeConflict.Kind.NODE_TYPE, existing, incoming));
+            return;
+        }
+        if (existing instanceof ArgumentCommandNode<S, ?> existingArgument && incoming instanceof ArgumentCommandNode<S, ?> incomingArgument
+                && !existingArgument.getType().equals(incomingArgument.getType())) {
+            conflicts.add(new MergeConflict(childPath, MergeConflict.Kind.ARGUMENT_TYPE, existing, incoming));
+            return;
+        }
+        if (existing.getRedirect() != incoming.getRedirect()) {
+            conflicts.add(new MergeConflict(childPath, MergeConflict.Kind.REDIRECT, existing, incoming));
+            return;
+        }
+
+        Command<S> existingCommand = existing.getCommand();
+        Command<S> incomingCommand = incoming.getCommand();
+        if (incomingCommand != null && incomingCommand != existingCommand) {
+            if (existingCommand != null) {
+                conflicts.add(new MergeConflict(childPath, MergeConflict.Kind.EXECUTOR, existing, incoming));
+            }
+            if (existingCommand == null || prefer == Prefer.INCOMING) {
+                // CommandNode#addChild copies the executor of a childless node onto the existing one
+                parent.addChild(incoming.createBuilder().build());
+            }
+        }
+
+        for (CommandNode<S> grandchild : incoming.getChildren()) {
+            mergeChild(existing, grandchild, prefer, childPath, conflicts);
+        }
+    }
+}
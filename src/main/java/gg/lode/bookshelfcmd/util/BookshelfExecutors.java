@@ -0,0 +1,133 @@
+package gg.lode.bookshelfcmd.util;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Shared executors for work Bookshelf moves off the main server thread.
+ * <p>
+ * Executors are backed by virtual threads when the running JVM supports them, and by a small
+ * pool of daemon platform threads otherwise. Either way they are bounded: once the concurrency
+ * limit is reached, further tasks are rejected right away with a {@link RejectedExecutionException}
+ * instead of queueing up behind a slow task.
+ */
+public final class BookshelfExecutors {
+
+    private static final int DEFAULT_CONCURRENCY = Math.max(4, Runtime.getRuntime().availableProcessors());
+
+    private static volatile Executor suggestions;
+    private static volatile Executor lookups;
+
+    private BookshelfExecutors() {
+    }
+
+    /**
+     * @return The shared executor used for asynchronous suggestions
+     */
+    public static Executor suggestions() {
+        Executor executor = suggestions;
+        if (executor == null) {
+            synchronized (BookshelfExecutors.class) {
+                executor = suggestions;
+                if (executor == null) suggestions = executor = newBounded("bookshelf-suggestions", DEFAULT_CONCURRENCY);
+            }
+        }
+        return executor;
+    }
+
+    /**
+     * @return The shared executor used for blocking lookups, such as offline player resolution
+     */
+    public static Executor lookups() {
+        Executor executor = lookups;
+        if (executor == null) {
+            synchronized (BookshelfExecutors.class) {
+                executor = lookups;
+                if (executor == null) lookups = executor = newBounded("bookshelf-lookups", DEFAULT_CONCURRENCY);
+            }
+        }
+        return executor;
+    }
+
+    /**
+     * Run a task whose result is only useful until a newer request supersedes it, such as a
+     * suggestion. Cancelling the returned future also cancels the task: if it has not started,
+     * it is skipped, and if it is already running, it finishes and its result is discarded.
+     *
+     * @param task     The task
+     * @param executor The executor to run it on
+     * @param fallback The result when the task fails or the executor is saturated
+     * @return The result of the task
+     */
+    public static <T> CompletableFuture<T> supply(Supplier<T> task, Executor executor, T fallback) {
+        CompletableFuture<T> source;
+        try {
+            source = CompletableFuture.supplyAsync(task, executor);
+        } catch (RejectedExecutionException e) {
+            // Saturated, skip this one rather than blocking the caller
+            return CompletableFuture.completedFuture(fallback);
+        }
+        // Cancelling a dependent future does not cancel its source, so forward it
+        CompletableFuture<T> result = source.exceptionally(throwable -> fallback);
+        result.whenComplete((value, throwable) -> {
+            if (result.isCancelled()) source.cancel(false);
+        });
+        return result;
+    }
+
+    /**
+     * Create a bounded executor.
+     *
+     * @param name           The thread name prefix
+     * @param maxConcurrency The maximum number of tasks running at once
+     * @return The executor
+     */
+    public static Executor newBounded(String name, int maxConcurrency) {
+        ExecutorService threads = newVirtualThreadExecutor();
+        if (threads == null) threads = newPlatformThreadPool(name, maxConcurrency);
+
+        // Both kinds of threads are limited by permits, so a task is either started or rejected, never queued
+        ExecutorService delegate = threads;
+        Semaphore permits = new Semaphore(maxConcurrency);
+        return task -> {
+            if (!permits.tryAcquire()) throw new RejectedExecutionException(name + " is saturated");
+            try {
+                delegate.execute(() -> {
+                    try {
+                        task.run();
+                    } finally {
+                        permits.release();
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                permits.release();
+                throw e;
+            }
+        };
+    }
+
+    // At most maxConcurrency tasks hold a permit, so the queue only bridges a worker finishing its previous task
+    private static ExecutorService newPlatformThreadPool(String name, int maxConcurrency) {
+        AtomicInteger count = new AtomicInteger();
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(maxConcurrency, maxConcurrency, 30, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), runnable -> {
+            Thread thread = new Thread(runnable, name + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        pool.allowCoreThreadTimeOut(true);
+        return pool;
+    }
+
+    // Executors#newVirtualThreadPerTaskExecutor only exists on Java 21+, while we target 17
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException | UnsupportedOperationException e) {
+            return null;
+        }
+    }
+}
@@ -3,16 +3,69 @@ package gg.lode.bookshelfcmd.util;
 import com.destroystokyo.paper.profile.PlayerProfile;
 import org.bukkit.Bukkit;
 import org.bukkit.OfflinePlayer;
+import org.bukkit.entity.Player;
+import org.bukkit.plugin.IllegalPluginAccessException;
+import org.bukkit.plugin.java.JavaPlugin;
 import org.jetbrains.annotations.Nullable;
 
-import java.util.List;
-import java.util.Objects;
-import java.util.UUID;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
 
 public class CommandHelper {
 
+    // Offline lookups currently running, so concurrent requests for the same player share one lookup
+    private static final Map<UUID, CompletableFuture<OfflinePlayer>> IN_FLIGHT = new ConcurrentHashMap<>();
+
+    // Resolved offline handles, invalidated on join and quit by the BookshelfListener
+    // Online players are always served from the server's player list, so a Player handle is never cached
+    private static volatile ExpiringCache<UUID, OfflinePlayer> players = new ExpiringCache<>(512, Duration.ofMinutes(10));
+
+    /**
+     * Replace the resolved player cache. Existing entries are discarded.
+     *
+     * @param maxSize The maximum number of players kept, least recently used are evicted first
+     * @param ttl     How long a resolved player stays cached, or null to keep them until evicted
+     */
+    public static void configureCache(int maxSize, Duration ttl) {
+        players = new ExpiringCache<>(maxSize, ttl);
+    }
+
+    /**
+     * Forget a resolved player, e.g. because they joined or left and their handle changed.
+     *
+     * @param uniqueId The player's unique id
+     */
+    public static void invalidate(UUID uniqueId) {
+        players.invalidate(uniqueId);
+    }
+
+    public static void invalidateAll() {
+        players.invalidateAll();
+    }
+
+    public static long getCacheHits() {
+        return players.hits();
+    }
+
+    public static long getCacheMisses() {
+        return players.misses();
+    }
+
     public static OfflinePlayer getOfflinePlayerOrPlayer(UUID uniqueId) {
-        return uniqueId == null ? null : Bukkit.getPlayer(uniqueId) != null ? Bukkit.getPlayer(uniqueId) : Bukkit.getOfflinePlayer(uniqueId);
+        if (uniqueId == null) return null;
+        Player player = Bukkit.getPlayer(uniqueId);
+        if (player != null) return player;
+
+        ExpiringCache<UUID, OfflinePlayer> cache = players;
+        OfflinePlayer offlinePlayer = cache.get(uniqueId);
+        if (offlinePlayer == null) {
+            offlinePlayer = Bukkit.getOfflinePlayer(uniqueId);
+            cache.put(uniqueId, offlinePlayer);
+        }
+        return offlinePlayer;
     }
 
     @Nullable
@@ -28,4 +81,147 @@ public class CommandHelper {
         return profiles.stream().map(p -> getOfflinePlayerOrPlayer(p.getUniqueId())).filter(Objects::nonNull).toList();
     }
 
+    /**
+     * Resolves profiles to players without blocking the calling thread.
+     * <p>
+     * Online players are served immediately from the in-memory player list. The remaining
+     * profiles are resolved together in a single batch off-thread, and lookups already in flight
+     * for the same player are shared rather than repeated.
+     * <p>
+     * The future completes on the {@link BookshelfExecutors#lookups() lookup} thread unless every
+     * player was already known, so wrap it with {@link #onMainThread(CompletableFuture)} before
+     * touching the world or other players from its callbacks.
+     *
+     * @param profiles The profiles to resolve, e.g. from a PlayerProfileArgument
+     * @return A future of the resolved players, in the order of the given profiles
+     */
+    public static CompletableFuture<List<OfflinePlayer>> convertPlayerProfileToOfflinePlayersAsync(List<PlayerProfile> profiles) {
+        List<UUID> uniqueIds = new ArrayList<>(profiles.size());
+        for (PlayerProfile profile : profiles) {
+            if (profile.getUniqueId() != null) uniqueIds.add(profile.getUniqueId());
+        }
+        return getOfflinePlayersOrPlayersAsync(uniqueIds);
+    }
+
+    /**
+     * Resolves a player without blocking the calling thread.
+     *
+     * @param uniqueId The player's unique id
+     * @return A future of the online player, or the offline player if they are not online,
+     * completing on the lookup thread like {@link #getOfflinePlayersOrPlayersAsync(Collection)}
+     * @see #getOfflinePlayersOrPlayersAsync(Collection)
+     */
+    public static CompletableFuture<OfflinePlayer> getOfflinePlayerOrPlayerAsync(UUID uniqueId) {
+        if (uniqueId == null) return CompletableFuture.completedFuture(null);
+        return getOfflinePlayersOrPlayersAsync(List.of(uniqueId)).thenApply(players -> players.isEmpty() ? null : players.get(0));
+    }
+
+    /**
+     * Resolves many players without blocking the calling thread.
+     * <p>
+     * Online players are served immediately, the rest are resolved in one off-thread batch.
+     * While the {@link BookshelfExecutors#lookups() lookup} executor is saturated, the future
+     * fails with a {@link RejectedExecutionException} instead.
+     * <p>
+     * The future completes on the {@link BookshelfExecutors#lookups() lookup} thread unless every
+     * player was already known, see {@link #onMainThread(CompletableFuture)}.
+     *
+     * @param uniqueIds The unique ids to resolve
+     * @return A future of the resolved players, in the order of the given ids
+     */
+    public static CompletableFuture<List<OfflinePlayer>> getOfflinePlayersOrPlayersAsync(Collection<UUID> uniqueIds) {
+        List<CompletableFuture<OfflinePlayer>> results = new ArrayList<>(uniqueIds.size());
+        Map<UUID, CompletableFuture<OfflinePlayer>> batch = null;
+
+        for (UUID uniqueId : uniqueIds) {
+            Player player = Bukkit.getPlayer(uniqueId);
+            if (player != null) {
+                results.add(CompletableFuture.completedFuture(player));
+                continue;
+            }
+
+            OfflinePlayer cached = players.get(uniqueId);
+            if (cached != null) {
+                results.add(CompletableFuture.completedFuture(cached));
+                continue;
+            }
+
+            CompletableFuture<OfflinePlayer> created = new CompletableFuture<>();
+            CompletableFuture<OfflinePlayer> existing = IN_FLIGHT.putIfAbsent(uniqueId, created);
+            if (existing != null) {
+                results.add(existing);
+                continue;
+            }
+            if (batch == null) batch = new LinkedHashMap<>();
+            batch.put(uniqueId, created);
+            results.add(created);
+        }
+
+        if (batch != null) resolveBatch(batch);
+
+        CompletableFuture<?>[] all = results.toArray(CompletableFuture[]::new);
+        return CompletableFuture.allOf(all).thenApply(ignored -> {
+            List<OfflinePlayer> players = new ArrayList<>(all.length);
+            for (CompletableFuture<OfflinePlayer> result : results) {
+                OfflinePlayer player = result.join();
+                if (player != null) players.add(player);
+            }
+            return players;
+        });
+    }
+
+    /**
+     * Hand the result of a lookup over to the main server thread, e.g.
+     * {@code onMainThread(getOfflinePlayerOrPlayerAsync(id)).thenAccept(player -> ...)}.
+     *
+     * @param future The future to wait for
+     * @return A future completing with the same result on the main thread, right away if already there
+     */
+    public static <T> CompletableFuture<T> onMainThread(CompletableFuture<T> future) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        future.whenComplete((value, throwable) -> {
+            Runnable complete = () -> {
+                if (throwable != null) result.completeExceptionally(throwable);
+                else result.complete(value);
+            };
+            if (Bukkit.isPrimaryThread()) {
+                complete.run();
+                return;
+            }
+            try {
+                Bukkit.getScheduler().runTask(JavaPlugin.getProvidingPlugin(CommandHelper.class), complete);
+            } catch (IllegalPluginAccessException e) {
+                // The plugin is disabled, nothing will run on the main thread for it anymore
+                result.completeExceptionally(e);
+            }
+        });
+        return result;
+    }
+
+    private static void resolveBatch(Map<UUID, CompletableFuture<OfflinePlayer>> batch) {
+        Runnable task = () -> {
+            for (Map.Entry<UUID, CompletableFuture<OfflinePlayer>> entry : batch.entrySet()) {
+                try {
+                    OfflinePlayer player = Bukkit.getOfflinePlayer(entry.getKey());
+                    players.put(entry.getKey(), player);
+                    entry.getValue().complete(player);
+                } catch (Throwable throwable) {
+                    entry.getValue().completeExceptionally(throwable);
+                } finally {
+                    IN_FLIGHT.remove(entry.getKey(), entry.getValue());
+                }
+            }
+        };
+
+        try {
+            BookshelfExecutors.lookups().execute(task);
+        } catch (RejectedExecutionException e) {
+            // Saturated, fail the lookup rather than blocking the calling thread, usually the main thread
+            for (Map.Entry<UUID, CompletableFuture<OfflinePlayer>> entry : batch.entrySet()) {
+                IN_FLIGHT.remove(entry.getKey(), entry.getValue());
+                entry.getValue().completeExceptionally(e);
+            }
+        }
+    }
+
 }
@@ -0,0 +1,116 @@
+package gg.lode.bookshelfcmd.util;
+
+import org.bukkit.command.Command;
+import org.bukkit.command.CommandMap;
+import org.bukkit.command.CommandSender;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * An immutable snapshot of the labels in a command map, including {@code namespace:label}
+ * forms and aliases, for lookups and prefix completion that don't walk the command map per request.
+ * <p>
+ * Snapshots are rebuilt when the {@link CommandRegistryVersion} changes and published with a
+ * single store, so readers never lock and never see a partially built index. Lookups only read
+ * the snapshot. Commands another plugin registers on the command map at runtime, without
+ * changing the number of labels, are missed until the next registration signal bumps the
+ * version, e.g. a plugin being enabled or disabled.
+ */
+public final class CommandIndex {
+
+    private static final AtomicReference<CommandIndex> CURRENT = new AtomicReference<>();
+    private static final AtomicLong GENERATIONS = new AtomicLong();
+
+    private final CommandMap commandMap;
+    private final long version;
+    private final long generation = GENERATIONS.incrementAndGet();
+    private final Map<String, Command> commands;
+    private final PrefixIndex labels;
+    private final Command[] byLabel; // aligned with labels
+
+    private CommandIndex(CommandMap commandMap, long version) {
+        this.commandMap = commandMap;
+        this.version = version;
+        this.commands = copyOf(commandMap.getKnownCommands());
+        this.labels = PrefixIndex.of(commands.keySet());
+        this.byLabel = new Command[labels.size()];
+        for (int i = 0; i < byLabel.length; i++) {
+            byLabel[i] = commands.get(labels.get(i));
+        }
+    }
+
+    // Map.copyOf rejects nulls, which Bukkit command maps can hold
+    private static Map<String, Command> copyOf(Map<String, Command> known) {
+        Map<String, Command> commands = new HashMap<>(known.size());
+        for (Map.Entry<String, Command> entry : known.entrySet()) {
+            if (entry.getKey() != null && entry.getValue() != null) commands.put(entry.getKey(), entry.getValue());
+        }
+        return Map.copyOf(commands);
+    }
+
+    /**
+     * @param commandMap The command map to index
+     * @return The index of its current registrations
+     */
+    public static CommandIndex of(CommandMap commandMap) {
+        long version = CommandRegistryVersion.current(commandMap);
+        CommandIndex index = CURRENT.get();
+        if (index == null || index.commandMap != commandMap || index.version != version) {
+            // Racing rebuilds produce equal snapshots, so whichever is stored last is fine
+            index = new CommandIndex(commandMap, version);
+            CURRENT.set(index);
+        }
+        return index;
+    }
+
+    /**
+     * Look up a command the way {@link CommandMap#getCommand(String)} does, ignoring case.
+     *
+     * @param label A label, alias or {@code namespace:label}
+     * @return The command, or null if none is registered under the label
+     */
+    public Command getCommand(String label) {
+        Command command = commands.get(label);
+        // Registered labels are lower case, so only retry when the input is not
+        return command != null ? command : commands.get(label.toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     * Complete a command name the way {@link CommandMap#tabComplete(CommandSender, String)} does
+     * for the first token, without the {@code /} it prefixes for players.
+     *
+     * @param sender The sender completing, only commands they may use are returned
+     * @param prefix The typed part of the label, matched ignoring case
+     * @return The matching labels in lexical order
+     */
+    public List<String> complete(CommandSender sender, String prefix) {
+        String lowerCase = prefix.toLowerCase(Locale.ROOT);
+        int from = labels.from(lowerCase);
+        int to = labels.to(lowerCase);
+        List<String> names = new ArrayList<>(to - from);
+        for (int i = from; i < to; i++) {
+            if (byLabel[i].testPermissionSilent(sender)) names.add(labels.get(i));
+        }
+        return names;
+    }
+
+    /**
+     * @return A stamp that differs for every rebuilt snapshot, for caching results derived from it
+     */
+    public long generation() {
+        return generation;
+    }
+
+    /**
+     * @return The number of indexed labels
+     */
+    public int size() {
+        return byLabel.length;
+    }
+}
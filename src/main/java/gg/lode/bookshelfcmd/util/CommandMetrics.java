@@ -0,0 +1,248 @@
+package gg.lode.bookshelfcmd.util;
+
+import com.mojang.brigadier.Command;
+import com.mojang.brigadier.context.CommandContext;
+import com.mojang.brigadier.exceptions.CommandSyntaxException;
+import com.mojang.brigadier.suggestion.Suggestions;
+import com.mojang.brigadier.tree.CommandNode;
+import com.mojang.brigadier.tree.RootCommandNode;
+import dev.jorel.commandapi.Brigadier;
+import dev.jorel.commandapi.arguments.ArgumentSuggestions;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Opt-in execution and suggestion latency metrics for Bookshelf commands and arguments.
+ * <p>
+ * Metrics are off by default and cost a single volatile read per call while disabled. Once
+ * {@link #enable() enabled}, every timed call updates a few {@link LongAdder}s and one bucket of a
+ * power-of-two latency histogram, so recording never takes a lock. Use {@link #snapshot()} or
+ * {@link #slowest(Kind, int)} to read them.
+ * <p>
+ * Suggestion providers check whether metrics are enabled on every call, but executors are only
+ * wrapped when their command is registered. Call {@link #enable()} before registering commands,
+ * typically at the start of {@code onEnable}, or executions of earlier commands are never timed.
+ */
+public final class CommandMetrics {
+
+    private static final int BUCKETS = 64;
+    private static final Map<Key, Timer> TIMERS = new ConcurrentHashMap<>();
+    private static volatile boolean enabled;
+
+    public enum Kind {
+        EXECUTION,
+        SUGGESTION
+    }
+
+    private CommandMetrics() {
+    }
+
+    /**
+     * Start recording. Commands registered from now on have their executors timed, commands
+     * registered before only have their suggestions timed.
+     */
+    public static void enable() {
+        enabled = true;
+    }
+
+    /**
+     * Stop recording. Recorded metrics are kept until {@link #reset()}.
+     */
+    public static void disable() {
+        enabled = false;
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    public static void reset() {
+        TIMERS.clear();
+    }
+
+    /**
+     * @return A start timestamp to pass to {@link #record(Kind, String, long)}, or 0 when disabled
+     */
+    public static long start() {
+        return enabled ? System.nanoTime() : 0;
+    }
+
+    /**
+     * Record the time elapsed since a {@link #start()}.
+     *
+     * @param kind  What was timed
+     * @param name  The command or argument name
+     * @param start The start timestamp, ignored if 0
+     */
+    public static void record(Kind kind, String name, long start) {
+        if (start == 0) return;
+        TIMERS.computeIfAbsent(new Key(kind, name), Timer::new).record(System.nanoTime() - start);
+    }
+
+    /**
+     * Time a suggestion provider, until the suggestions it returns are complete.
+     *
+     * @param nodeName    The argument node name
+     * @param suggestions The provider to time
+     * @return The timed provider
+     */
+    public static <S> ArgumentSuggestions<S> timed(String nodeName, ArgumentSuggestions<S> suggestions) {
+        return (info, builder) -> {
+            long start = start();
+            if (start == 0) return suggestions.suggest(info, builder);
+
+            // Key by command label as well, argument names are often reused across commands
+            String input = info.currentInput();
+            int space = input.indexOf(' ');
+            String name = (space < 0 ? input : input.substring(0, space)) + " <" + nodeName + ">";
+            try {
+                CompletableFuture<Suggestions> future = suggestions.suggest(info, builder);
+                future.whenComplete((result, throwable) -> record(Kind.SUGGESTION, name, start));
+                return future;
+            } catch (Throwable throwable) {
+                record(Kind.SUGGESTION, name, start);
+                throw throwable;
+            }
+        };
+    }
+
+    /**
+     * Time the executors of a command that was just registered, under its plain name and under
+     * the namespace it was registered with. Commands of the same name in other namespaces are
+     * left alone. Executors that are already timed are left as they are.
+     * <p>
+     * Does nothing while disabled, and is not repeated once metrics are enabled later,
+     * see {@link #enable()}.
+     *
+     * @param namespace   The namespace the command was registered under
+     * @param commandName The command name
+     */
+    @SuppressWarnings("unchecked")
+    public static void instrument(String namespace, String commandName) {
+        if (!enabled) return;
+        RootCommandNode<Object> root = (RootCommandNode<Object>) Brigadier.getRootNode();
+        Set<CommandNode<Object>> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (String name : new String[]{commandName, namespace + ":" + commandName}) {
+            CommandNode<Object> node = root.getChild(name);
+            if (node != null) instrument(root, node, commandName, visited);
+        }
+    }
+
+    private static void instrument(CommandNode<Object> parent, CommandNode<Object> node, String commandName, Set<CommandNode<Object>> visited) {
+        if (!visited.add(node)) return;
+        Command<Object> command = node.getCommand();
+        if (command != null && !(command instanceof TimedCommand)) {
+            // CommandNode#addChild copies the executor of a childless node onto the existing one
+            parent.addChild(node.createBuilder().executes(new TimedCommand(commandName, command)).build());
+        }
+        if (node.getRedirect() != null) return;
+        for (CommandNode<Object> child : new ArrayList<>(node.getChildren())) {
+            instrument(node, child, commandName, visited);
+        }
+    }
+
+    /**
+     * @return A snapshot of every recorded timer
+     */
+    public static List<Snapshot> snapshot() {
+        List<Snapshot> snapshots = new ArrayList<>(TIMERS.size());
+        for (Timer timer : TIMERS.values()) {
+            snapshots.add(timer.snapshot());
+        }
+        return snapshots;
+    }
+
+    /**
+     * @param kind  What was timed
+     * @param limit The maximum number of results
+     * @return The timers of the given kind with the highest 99th percentile, slowest first
+     */
+    public static List<Snapshot> slowest(Kind kind, int limit) {
+        return snapshot().stream()
+                .filter(snapshot -> snapshot.kind() == kind)
+                .sorted(Comparator.comparingLong((Snapshot snapshot) -> snapshot.percentile(0.99)).reversed()
+                        .thenComparing(Comparator.comparingDouble(Snapshot::meanNanos).reversed()))
+                .limit(limit)
+                .toList();
+    }
+
+    /**
+     * Recorded latencies of a command or argument.
+     *
+     * @param kind       What was timed
+     * @param name       The command or argument name
+     * @param count      The number of calls
+     * @param totalNanos The total time spent
+     * @param maxNanos   The slowest call
+     * @param buckets    Call counts by latency, bucket i holds calls taking [2^i, 2^(i+1)) nanoseconds
+     */
+    public record Snapshot(Kind kind, String name, long count, long totalNanos, long maxNanos, long[] buckets) {
+
+        public double meanNanos() {
+            return count == 0 ? 0 : (double) totalNanos / count;
+        }
+
+        /**
+         * @param quantile The quantile, between 0 and 1
+         * @return An upper bound of the latency at the quantile, in nanoseconds
+         */
+        public long percentile(double quantile) {
+            long target = (long) Math.ceil(count * quantile);
+            long seen = 0;
+            for (int i = 0; i < buckets.length; i++) {
+                seen += buckets[i];
+                if (seen >= target && seen > 0) return Math.min(maxNanos, i >= 62 ? Long.MAX_VALUE : 1L << (i + 1));
+            }
+            return maxNanos;
+        }
+    }
+
+    private record Key(Kind kind, String name) {
+    }
+
+    private static final class Timer {
+        private final Key key;
+        private final LongAdder count = new LongAdder();
+        private final LongAdder total = new LongAdder();
+        private final AtomicLong max = new AtomicLong();
+        private final LongAdder[] buckets = new LongAdder[BUCKETS];
+
+        private Timer(Key key) {
+            this.key = key;
+            for (int i = 0; i < BUCKETS; i++) buckets[i] = new LongAdder();
+        }
+
+        private void record(long nanos) {
+            if (nanos < 0) nanos = 0;
+            count.increment();
+            total.add(nanos);
+            buckets[63 - Long.numberOfLeadingZeros(nanos | 1)].increment();
+            long current;
+            while (nanos > (current = max.get()) && !max.compareAndSet(current, nanos)) {
+                // Retry until this is not the slowest call, or the max is updated
+            }
+        }
+
+        private Snapshot snapshot() {
+            long[] counts = new long[BUCKETS];
+            for (int i = 0; i < BUCKETS; i++) counts[i] = buckets[i].sum();
+            return new Snapshot(key.kind(), key.name(), count.sum(), total.sum(), max.get(), counts);
+        }
+    }
+
+    private record TimedCommand(String name, Command<Object> delegate) implements Command<Object> {
+        @Override
+        public int run(CommandContext<Object> context) throws CommandSyntaxException {
+            long start = start();
+            try {
+                return delegate.run(context);
+            } finally {
+                record(Kind.EXECUTION, name, start);
+            }
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package gg.lode.bookshelfcmd.util;
+
+import org.bukkit.command.CommandMap;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A cheap stamp that changes whenever the set of registered commands changes.
+ * <p>
+ * Bookshelf bumps it on its own registrations and merges, and the {@code BookshelfListener}
+ * bumps it when the server finishes loading and when a plugin is enabled or disabled. Other
+ * registrations that add or remove labels are caught by folding in the size of the command map.
+ * Labels another plugin replaces at runtime without any of these signals stay stale until the
+ * next bump.
+ */
+public final class CommandRegistryVersion {
+
+    private static final AtomicLong VERSION = new AtomicLong();
+
+    private CommandRegistryVersion() {
+    }
+
+    /**
+     * Mark the registered commands as changed, invalidating anything cached against them.
+     */
+    public static void bump() {
+        VERSION.incrementAndGet();
+    }
+
+    /**
+     * @param commandMap The server command map
+     * @return The current registration stamp
+     */
+    public static long current(CommandMap commandMap) {
+        return (VERSION.get() << 32) ^ commandMap.getKnownCommands().size();
+    }
+}
@@ -0,0 +1,90 @@
+package gg.lode.bookshelfcmd.util;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A small, size-bounded, access-ordered cache with an optional time to live.
+ * <p>
+ * Once the cache is full, the least recently used entry is evicted. Expired entries are
+ * dropped lazily when they are looked up. All operations are thread-safe.
+ *
+ * @param <K> The key type
+ * @param <V> The value type
+ */
+public final class ExpiringCache<K, V> {
+
+    private final long ttlNanos; // 0 when entries never expire
+    private final Map<K, Entry<V>> entries;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * @param maxSize The maximum number of entries kept
+     * @param ttl     How long an entry stays valid, or null to keep entries until evicted
+     */
+    public ExpiringCache(int maxSize, Duration ttl) {
+        if (maxSize <= 0) throw new IllegalArgumentException("maxSize must be positive: " + maxSize);
+        this.ttlNanos = ttl == null ? 0 : ttl.toNanos();
+        this.entries = new LinkedHashMap<>(Math.min(maxSize, 64), 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    /**
+     * @param key The key to look up
+     * @return The cached value, or null if absent or expired
+     */
+    public V get(K key) {
+        synchronized (entries) {
+            Entry<V> entry = entries.get(key);
+            if (entry != null && (ttlNanos == 0 || System.nanoTime() - entry.createdAt < ttlNanos)) {
+                hits.increment();
+                return entry.value;
+            }
+            if (entry != null) entries.remove(key);
+        }
+        misses.increment();
+        return null;
+    }
+
+    public void put(K key, V value) {
+        synchronized (entries) {
+            entries.put(key, new Entry<>(value, System.nanoTime()));
+        }
+    }
+
+    public void invalidate(K key) {
+        synchronized (entries) {
+            entries.remove(key);
+        }
+    }
+
+    public void invalidateAll() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    public long hits() {
+        return hits.sum();
+    }
+
+    public long misses() {
+        return misses.sum();
+    }
+
+    private record Entry<V>(V value, long createdAt) {
+    }
+}
@@ -0,0 +1,264 @@
+package gg.lode.bookshelfcmd.util;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.IntPredicate;
+
+/**
+ * Ranks candidates by how well a typed query matches them as a subsequence.
+ * <p>
+ * Candidates are indexed once: each keeps its lower case characters, a bitmask of the characters
+ * it contains and a bitmask of its word boundaries (the start, after {@code _ - . : /} or a space,
+ * and camelCase humps). A candidate missing any character of the query is rejected with a single
+ * mask test, and the rest are scored without allocating. Matches at word boundaries and
+ * consecutive runs score higher, so {@code "dsw"} ranks {@code "diamond_sword"} above
+ * {@code "dishwasher"}, and candidates starting with the query always rank first.
+ */
+public final class FuzzyMatcher {
+
+    public static final FuzzyMatcher EMPTY = new FuzzyMatcher(new String[0]);
+
+    private static final int NO_MATCH = Integer.MIN_VALUE;
+    private static final int MATCH = 16;
+    private static final int BOUNDARY = 8;
+    private static final int CONSECUTIVE = 8;
+    private static final int FIRST_CHARACTER = 16;
+    private static final int GAP_START = 3;
+    private static final int GAP_EXTENSION = 1;
+    private static final int STARTS_WITH = 1 << 16; // above any score a subsequence match can reach
+
+    private final String[] candidates;
+    private final char[][] lowered;
+    private final long[] masks;
+    private final long[] boundaries; // only the first 64 characters get boundary bonuses
+
+    private FuzzyMatcher(String[] candidates) {
+        this.candidates = candidates;
+        this.lowered = new char[candidates.length][];
+        this.masks = new long[candidates.length];
+        this.boundaries = new long[candidates.length];
+        for (int i = 0; i < candidates.length; i++) {
+            char[] chars = candidates[i].toCharArray();
+            lowered[i] = lower(chars);
+            masks[i] = mask(lowered[i], lowered[i].length);
+            boundaries[i] = boundaries(chars);
+        }
+    }
+
+    /**
+     * @param candidates The candidates, in the order ties are broken in
+     * @return The matcher
+     */
+    public static FuzzyMatcher of(Collection<String> candidates) {
+        return candidates.isEmpty() ? EMPTY : new FuzzyMatcher(candidates.toArray(String[]::new));
+    }
+
+    /**
+     * Index the entries of a prefix index, keeping their positions.
+     *
+     * @param index The index
+     * @return The matcher, where candidate i is entry i of the index
+     */
+    public static FuzzyMatcher of(PrefixIndex index) {
+        if (index.size() == 0) return EMPTY;
+        String[] candidates = new String[index.size()];
+        for (int i = 0; i < candidates.length; i++) candidates[i] = index.get(i);
+        return new FuzzyMatcher(candidates);
+    }
+
+    public int size() {
+        return candidates.length;
+    }
+
+    public String get(int index) {
+        return candidates[index];
+    }
+
+    /**
+     * @param query The typed query
+     * @param limit The maximum number of results
+     * @return The best matching candidates, best first
+     */
+    public List<String> match(CharSequence query, int limit) {
+        int[] top = top(query, limit, candidate -> true);
+        List<String> matches = new ArrayList<>(top.length);
+        for (int index : top) matches.add(candidates[index]);
+        return matches;
+    }
+
+    /**
+     * @param query  The typed query
+     * @param limit  The maximum number of results
+     * @param accept Which candidate positions may be returned
+     * @return The positions of the best matching candidates, best first
+     */
+    public int[] top(CharSequence query, int limit, IntPredicate accept) {
+        char[] q = lower(query.toString().toCharArray());
+        long queryMask = mask(q, q.length);
+        int capacity = Math.min(limit, candidates.length);
+        if (capacity <= 0) return new int[0];
+
+        // Bounded min-heap of the best candidates so far, ordered by rank
+        int[] heapIndex = new int[capacity];
+        int[] heapScore = new int[capacity];
+        int size = 0;
+        for (int i = 0; i < candidates.length; i++) {
+            if ((queryMask & ~masks[i]) != 0 || !accept.test(i)) continue;
+            int score = score(i, q);
+            if (score == NO_MATCH) continue;
+            if (size < capacity) {
+                heapIndex[size] = i;
+                heapScore[size] = score;
+                siftUp(heapIndex, heapScore, size++);
+            } else if (better(score, i, heapScore[0], heapIndex[0])) {
+                heapIndex[0] = i;
+                heapScore[0] = score;
+                siftDown(heapIndex, heapScore, size);
+            }
+        }
+
+        // Pop worst first into the back of the result
+        int[] result = new int[size];
+        for (int n = size; n > 0; n--) {
+            result[n - 1] = heapIndex[0];
+            heapIndex[0] = heapIndex[n - 1];
+            heapScore[0] = heapScore[n - 1];
+            siftDown(heapIndex, heapScore, n - 1);
+        }
+        return result;
+    }
+
+    /**
+     * @param index The candidate position
+     * @param query The typed query, in lower case
+     * @return The score of the candidate, or {@link Integer#MIN_VALUE} if it does not match
+     */
+    private int score(int index, char[] query) {
+        if (query.length == 0) return 0;
+        int preferBoundaries = score(lowered[index], boundaries[index], query, true);
+        int plain = score(lowered[index], boundaries[index], query, false);
+        int score = Math.max(preferBoundaries, plain);
+        if (score == NO_MATCH) return NO_MATCH;
+        if (startsWith(lowered[index], query)) score += STARTS_WITH;
+        // Prefer shorter candidates among equal matches
+        return score - (lowered[index].length - query.length) / 4;
+    }
+
+    private static boolean startsWith(char[] text, char[] query) {
+        if (text.length < query.length) return false;
+        for (int i = 0; i < query.length; i++) {
+            if (text[i] != query[i]) return false;
+        }
+        return true;
+    }
+
+    private static int score(char[] text, long boundaries, char[] query, boolean preferBoundaries) {
+        int score = 0;
+        int previous = -1;
+        int position = 0;
+        for (int q = 0; q < query.length; q++) {
+            char c = query[q];
+            while (position < text.length && text[position] != c) position++;
+            if (position == text.length) return NO_MATCH;
+
+            // Jump ahead to a boundary occurrence, unless this one continues a run
+            if (preferBoundaries && position != previous + 1 && !isBoundary(boundaries, position)) {
+                for (int next = position + 1; next < text.length && next < 64; next++) {
+                    if (text[next] == c && isBoundary(boundaries, next)) {
+                        position = next;
+                        break;
+                    }
+                }
+            }
+
+            score += MATCH;
+            if (isBoundary(boundaries, position)) score += BOUNDARY;
+            if (q == 0 && position == 0) score += FIRST_CHARACTER;
+            else if (q > 0 && position == previous + 1) score += CONSECUTIVE;
+            else if (q > 0) score -= GAP_START + GAP_EXTENSION * (position - previous - 2);
+            previous = position;
+            position++;
+        }
+        return score;
+    }
+
+    private static boolean isBoundary(long boundaries, int position) {
+        return position < 64 && (boundaries & (1L << position)) != 0;
+    }
+
+    // Bits 0-25 for letters, 26-35 for digits, 36-63 hashed for everything else
+    private static long mask(char[] chars, int length) {
+        long mask = 0;
+        for (int i = 0; i < length; i++) {
+            char c = chars[i];
+            if (c >= 'a' && c <= 'z') mask |= 1L << (c - 'a');
+            else if (c >= '0' && c <= '9') mask |= 1L << (26 + c - '0');
+            else mask |= 1L << (36 + c % 28);
+        }
+        return mask;
+    }
+
+    // Lower cases char by char, unlike String#toLowerCase which can change the length, e.g. for a dotted capital I
+    private static char[] lower(char[] chars) {
+        char[] lower = new char[chars.length];
+        for (int i = 0; i < chars.length; i++) lower[i] = Character.toLowerCase(chars[i]);
+        return lower;
+    }
+
+    // Positions are those of the lower case chars, which lower keeps aligned with the original ones
+    private static long boundaries(char[] candidate) {
+        long bits = 0;
+        int length = Math.min(candidate.length, 64);
+        for (int i = 0; i < length; i++) {
+            char c = candidate[i];
+            if (i == 0) {
+                bits |= 1L;
+                continue;
+            }
+            char before = candidate[i - 1];
+            boolean separated = before == '_' || before == '-' || before == '.' || before == ':' || before == '/' || before == ' ';
+            boolean hump = Character.isUpperCase(c) && Character.isLowerCase(before);
+            boolean digits = Character.isDigit(c) && !Character.isDigit(before);
+            if (separated || hump || digits) bits |= 1L << i;
+        }
+        return bits;
+    }
+
+    // Higher scores rank first, then earlier positions
+    private static boolean better(int score, int index, int otherScore, int otherIndex) {
+        return score != otherScore ? score > otherScore : index < otherIndex;
+    }
+
+    private static void siftUp(int[] index, int[] score, int position) {
+        while (position > 0) {
+            int parent = (position - 1) >>> 1;
+            if (!better(score[parent], index[parent], score[position], index[position])) break;
+            swap(index, score, parent, position);
+            position = parent;
+        }
+    }
+
+    private static void siftDown(int[] index, int[] score, int size) {
+        int position = 0;
+        while (true) {
+            int left = position * 2 + 1;
+            if (left >= size) break;
+            int worst = left;
+            int right = left + 1;
+            if (right < size && better(score[left], index[left], score[right], index[right])) worst = right;
+            if (!better(score[position], index[position], score[worst], index[worst])) break;
+            swap(index, score, position, worst);
+            position = worst;
+        }
+    }
+
+    private static void swap(int[] index, int[] score, int a, int b) {
+        int i = index[a];
+        index[a] = index[b];
+        index[b] = i;
+        int s = score[a];
+        score[a] = score[b];
+        score[b] = s;
+    }
+}
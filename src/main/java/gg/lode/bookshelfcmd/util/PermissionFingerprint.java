@@ -0,0 +1,73 @@
+package gg.lode.bookshelfcmd.util;
+
+import org.bukkit.command.CommandSender;
+import org.bukkit.permissions.PermissionAttachmentInfo;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hashes the effective permissions of a sender into a 64-bit fingerprint.
+ * <p>
+ * Senders with identical permissions share a fingerprint, so results that only depend on
+ * permissions can be cached per fingerprint instead of per sender. A permission recalculation
+ * that changes anything yields a new fingerprint, which naturally invalidates those results.
+ * <p>
+ * Hashing walks every effective permission, so per-keystroke callers use {@link #cached(CommandSender)},
+ * which is dropped when the server resends a player's commands after their permissions changed,
+ * when they join or quit, and at the latest a second after it was computed.
+ */
+public final class PermissionFingerprint {
+
+    private static final long MAX_AGE_NANOS = TimeUnit.SECONDS.toNanos(1);
+    private static final Map<CommandSender, Cached> CACHE = Collections.synchronizedMap(new WeakHashMap<>());
+
+    private PermissionFingerprint() {
+    }
+
+    /**
+     * @param sender The sender to fingerprint
+     * @return The sender's recent fingerprint, computed again once it was invalidated or is a second old
+     */
+    public static long cached(CommandSender sender) {
+        long now = System.nanoTime();
+        Cached cached = CACHE.get(sender);
+        if (cached != null && now - cached.computedAt() < MAX_AGE_NANOS) return cached.fingerprint();
+        long fingerprint = of(sender);
+        CACHE.put(sender, new Cached(fingerprint, now));
+        return fingerprint;
+    }
+
+    /**
+     * Drop the cached fingerprint of a sender, e.g. when their permissions are recalculated.
+     *
+     * @param sender The sender to forget
+     */
+    public static void invalidate(CommandSender sender) {
+        CACHE.remove(sender);
+    }
+
+    /**
+     * @param sender The sender to fingerprint
+     * @return A fingerprint of the sender's operator status and effective permissions
+     */
+    public static long of(CommandSender sender) {
+        long hash = sender.isOp() ? 0x9E3779B97F4A7C15L : 0;
+        for (PermissionAttachmentInfo info : sender.getEffectivePermissions()) {
+            // Summing mixed entries keeps the fingerprint independent of iteration order
+            hash += mix(info.getPermission().hashCode() * 31L + (info.getValue() ? 1 : 2));
+        }
+        return hash;
+    }
+
+    private static long mix(long value) {
+        value = (value ^ (value >>> 33)) * 0xFF51AFD7ED558CCDL;
+        value = (value ^ (value >>> 33)) * 0xC4CEB9FE1A85EC53L;
+        return value ^ (value >>> 33);
+    }
+
+    private record Cached(long fingerprint, long computedAt) {
+    }
+}
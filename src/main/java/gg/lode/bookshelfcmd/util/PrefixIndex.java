@@ -0,0 +1,175 @@
+package gg.lode.bookshelfcmd.util;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Locale;
+
+/**
+ * An immutable, sorted array of strings searched by binary search.
+ * <p>
+ * All entries sharing a prefix are contiguous, so {@link #from(CharSequence)} and
+ * {@link #to(CharSequence)} locate them in O(log n) and the matches can be walked in
+ * stable lexical order without scanning the rest of the index.
+ * <p>
+ * An index built with {@link #ofIgnoreCase(Collection)} is searched by the lower case form of
+ * its entries, while {@link #get(int)} still returns them as given.
+ */
+public final class PrefixIndex {
+
+    public static final PrefixIndex EMPTY = new PrefixIndex(new String[0], new String[0]);
+
+    private final String[] entries; // the sorted search keys
+    private final String[] values; // the entries as given, same array as entries unless ignoring case
+
+    private PrefixIndex(String[] entries, String[] values) {
+        this.entries = entries;
+        this.values = values;
+    }
+
+    /**
+     * Build an index from the given entries. Duplicates are removed.
+     *
+     * @param entries The entries to index
+     * @return The sorted index
+     */
+    public static PrefixIndex of(Collection<String> entries) {
+        if (entries.isEmpty()) return EMPTY;
+        String[] sorted = entries.toArray(String[]::new);
+        Arrays.sort(sorted);
+        int distinct = 0;
+        for (int i = 0; i < sorted.length; i++) {
+            if (distinct == 0 || !sorted[i].equals(sorted[distinct - 1])) sorted[distinct++] = sorted[i];
+        }
+        String[] distinctEntries = distinct == sorted.length ? sorted : Arrays.copyOf(sorted, distinct);
+        return new PrefixIndex(distinctEntries, distinctEntries);
+    }
+
+    /**
+     * Build an index searched by the lower case form of the given entries. Duplicates are removed.
+     * Look up prefixes in lower case as well, e.g. with {@code SuggestionsBuilder#getRemainingLowerCase()}.
+     *
+     * @param entries The entries to index
+     * @return The sorted index
+     */
+    public static PrefixIndex ofIgnoreCase(Collection<String> entries) {
+        if (entries.isEmpty()) return EMPTY;
+        String[][] pairs = new String[entries.size()][];
+        int count = 0;
+        for (String entry : entries) {
+            pairs[count++] = new String[]{entry.toLowerCase(Locale.ROOT), entry};
+        }
+        Arrays.sort(pairs, Comparator.<String[], String>comparing(pair -> pair[0]).thenComparing(pair -> pair[1]));
+
+        String[] keys = new String[count];
+        String[] values = new String[count];
+        int distinct = 0;
+        for (String[] pair : pairs) {
+            if (distinct > 0 && pair[1].equals(values[distinct - 1])) continue;
+            keys[distinct] = pair[0];
+            values[distinct++] = pair[1];
+        }
+        return distinct == count ? new PrefixIndex(keys, values) : new PrefixIndex(Arrays.copyOf(keys, distinct), Arrays.copyOf(values, distinct));
+    }
+
+    /**
+     * @return Whether this index is searched by the lower case form of its entries
+     */
+    public boolean ignoresCase() {
+        return entries != values;
+    }
+
+    public int size() {
+        return entries.length;
+    }
+
+    public String get(int index) {
+        return values[index];
+    }
+
+    /**
+     * Find the exact position of an entry given as a region of a larger sequence.
+     *
+     * @param input The sequence holding the entry
+     * @param from  Start of the region, inclusive
+     * @param to    End of the region, exclusive
+     * @return The index of the entry, or -1 if it is not indexed
+     */
+    public int indexOf(CharSequence input, int from, int to) {
+        int low = 0, high = entries.length - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int cmp = compare(entries[mid], input, from, to);
+            if (cmp < 0) low = mid + 1;
+            else if (cmp > 0) high = mid - 1;
+            else return mid;
+        }
+        return -1;
+    }
+
+    /**
+     * @param prefix The prefix to look up
+     * @return The index of the first entry starting with the prefix, or where it would be inserted
+     */
+    public int from(CharSequence prefix) {
+        return from(prefix, 0, prefix.length());
+    }
+
+    /**
+     * @param prefix The prefix to look up
+     * @return The index after the last entry starting with the prefix
+     */
+    public int to(CharSequence prefix) {
+        return to(prefix, 0, prefix.length());
+    }
+
+    public int from(CharSequence input, int start, int end) {
+        int low = 0, high = entries.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (comparePrefix(entries[mid], input, start, end) < 0) low = mid + 1;
+            else high = mid;
+        }
+        return low;
+    }
+
+    public int to(CharSequence input, int start, int end) {
+        int low = 0, high = entries.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (comparePrefix(entries[mid], input, start, end) <= 0) low = mid + 1;
+            else high = mid;
+        }
+        return low;
+    }
+
+    /**
+     * Compares an entry against a region using {@link String#compareTo(String)} ordering.
+     */
+    public static int compare(String entry, CharSequence input, int from, int to) {
+        int regionLength = to - from;
+        int limit = Math.min(entry.length(), regionLength);
+        for (int i = 0; i < limit; i++) {
+            char a = entry.charAt(i);
+            char b = input.charAt(from + i);
+            if (a != b) return a - b;
+        }
+        return entry.length() - regionLength;
+    }
+
+    /**
+     * Compares only the leading characters of an entry against a prefix region.
+     *
+     * @return 0 if the entry starts with the prefix, otherwise its order relative to the prefix
+     */
+    private static int comparePrefix(String entry, CharSequence input, int from, int to) {
+        int regionLength = to - from;
+        int limit = Math.min(entry.length(), regionLength);
+        for (int i = 0; i < limit; i++) {
+            char a = entry.charAt(i);
+            char b = input.charAt(from + i);
+            if (a != b) return a - b;
+        }
+        return entry.length() >= regionLength ? 0 : -1;
+    }
+}
@@ -0,0 +1,176 @@
+package gg.lode.bookshelfcmd.util;
+
+import com.mojang.brigadier.exceptions.CommandSyntaxException;
+import com.mojang.brigadier.suggestion.Suggestions;
+import com.mojang.brigadier.suggestion.SuggestionsBuilder;
+import dev.jorel.commandapi.SuggestionInfo;
+import dev.jorel.commandapi.arguments.ArgumentSuggestions;
+import org.bukkit.Bukkit;
+import org.bukkit.command.CommandSender;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.plugin.java.JavaPlugin;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Coalesces suggestion requests per sender.
+ * <p>
+ * Clients request suggestions on every keystroke, and only the response to the latest request
+ * is ever shown. A throttled provider serves a sender at most {@code maxPerTick} times per server
+ * tick, and defers requests that arrive within the debounce window of the previous one. A deferred
+ * request is only computed if no newer request from the same sender arrived in the meantime, so a
+ * burst of keystrokes costs one completion. Superseded requests are answered with no suggestions.
+ * A superseded asynchronous completion is cancelled: providers running on
+ * {@link BookshelfExecutors#supply} skip it if it has not started yet, while one already running
+ * finishes and its result is discarded.
+ */
+public final class SuggestionThrottle {
+
+    private static final long TICK_MILLIS = 50;
+    private static volatile SuggestionThrottle shared;
+
+    private final long debounceNanos;
+    private final int maxPerTick;
+    private final Map<CommandSender, State> states = Collections.synchronizedMap(new WeakHashMap<>());
+
+    /**
+     * @param debounce   How soon after a served request a new one is deferred instead of served
+     * @param maxPerTick How many requests of a sender are served per tick, further ones are deferred
+     */
+    public SuggestionThrottle(Duration debounce, int maxPerTick) {
+        if (maxPerTick <= 0) throw new IllegalArgumentException("maxPerTick must be positive: " + maxPerTick);
+        this.debounceNanos = debounce.toNanos();
+        this.maxPerTick = maxPerTick;
+    }
+
+    /**
+     * @return The throttle shared by Bookshelf arguments, debouncing 50ms bursts and serving one request per tick
+     */
+    public static SuggestionThrottle shared() {
+        SuggestionThrottle throttle = shared;
+        if (throttle == null) {
+            synchronized (SuggestionThrottle.class) {
+                throttle = shared;
+                if (throttle == null) shared = throttle = new SuggestionThrottle(Duration.ofMillis(TICK_MILLIS), 1);
+            }
+        }
+        return throttle;
+    }
+
+    /**
+     * Throttle a suggestion provider. Every provider wrapped by the same throttle shares the per-sender limits.
+     *
+     * @param suggestions The provider to throttle
+     * @return The throttled provider
+     */
+    public ArgumentSuggestions<CommandSender> wrap(ArgumentSuggestions<CommandSender> suggestions) {
+        return (info, builder) -> {
+            State state = states.computeIfAbsent(info.sender(), sender -> new State());
+            synchronized (state) {
+                state.supersede();
+                long sequence = ++state.sequence;
+                long now = System.nanoTime();
+
+                int tick = Bukkit.getCurrentTick();
+                if (tick != state.tick) {
+                    state.tick = tick;
+                    state.served = 0;
+                }
+
+                if (state.served < maxPerTick && now - state.lastServed >= debounceNanos) {
+                    return state.serve(suggestions, info, builder, now);
+                }
+
+                // Defer, and only compute it if this is still the latest request by then
+                CompletableFuture<Suggestions> deferred = new CompletableFuture<>();
+                state.pending = deferred;
+                long delay = Math.max(1, (debounceNanos / 1_000_000 + TICK_MILLIS - 1) / TICK_MILLIS);
+                Bukkit.getScheduler().runTaskLater(plugin(), () -> runDeferred(state, sequence, suggestions, info, builder, deferred), delay);
+                return deferred;
+            }
+        };
+    }
+
+    /**
+     * Drop the throttling state of a sender, e.g. when they disconnect.
+     *
+     * @param sender The sender to forget
+     */
+    public void evict(CommandSender sender) {
+        State state = states.remove(sender);
+        if (state != null) {
+            synchronized (state) {
+                state.supersede();
+            }
+        }
+    }
+
+    private void runDeferred(State state, long sequence, ArgumentSuggestions<CommandSender> suggestions,
+                             SuggestionInfo<CommandSender> info, SuggestionsBuilder builder, CompletableFuture<Suggestions> deferred) {
+        CompletableFuture<Suggestions> result;
+        synchronized (state) {
+            // Superseded requests were already answered
+            if (state.sequence != sequence || deferred.isDone()) return;
+            state.pending = null;
+
+            int tick = Bukkit.getCurrentTick();
+            if (tick != state.tick) {
+                state.tick = tick;
+                state.served = 0;
+            }
+            if (state.served >= maxPerTick) {
+                // Still over the cap, try again next tick
+                state.pending = deferred;
+                Bukkit.getScheduler().runTaskLater(plugin(), () -> runDeferred(state, sequence, suggestions, info, builder, deferred), 1);
+                return;
+            }
+            try {
+                result = state.serve(suggestions, info, builder, System.nanoTime());
+            } catch (CommandSyntaxException e) {
+                deferred.completeExceptionally(e);
+                return;
+            }
+        }
+        result.whenComplete((value, throwable) -> {
+            if (throwable != null) deferred.completeExceptionally(throwable);
+            else deferred.complete(value);
+        });
+    }
+
+    private static Plugin plugin() {
+        return JavaPlugin.getProvidingPlugin(SuggestionThrottle.class);
+    }
+
+    private static final class State {
+        private long sequence;
+        private int tick = Integer.MIN_VALUE;
+        private int served;
+        private long lastServed = Long.MIN_VALUE / 2; // far enough in the past to not be debounced
+        private CompletableFuture<Suggestions> pending; // deferred, not computed yet
+        private CompletableFuture<Suggestions> inFlight; // computed, not complete yet
+
+        private CompletableFuture<Suggestions> serve(ArgumentSuggestions<CommandSender> suggestions, SuggestionInfo<CommandSender> info,
+                                                     SuggestionsBuilder builder, long now) throws CommandSyntaxException {
+            served++;
+            lastServed = now;
+            CompletableFuture<Suggestions> result = suggestions.suggest(info, builder);
+            inFlight = result.isDone() ? null : result;
+            return result;
+        }
+
+        private void supersede() {
+            if (pending != null) {
+                pending.complete(Suggestions.empty().join());
+                pending = null;
+            }
+            if (inFlight != null) {
+                inFlight.cancel(false);
+                inFlight = null;
+            }
+        }
+    }
+}